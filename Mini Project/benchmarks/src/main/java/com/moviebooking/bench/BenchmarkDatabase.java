@@ -0,0 +1,114 @@
+package com.moviebooking.bench;
+
+import com.moviebooking.model.Seat;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Embedded H2 database (Oracle mode) with the tables the benchmarked DAO methods touch
+ *
+ * In-memory and kept alive for the whole fork. useForDao() points DBConnection at it,
+ * which only works before DBConnection is first loaded in the JVM.
+ */
+public final class BenchmarkDatabase {
+
+    public static final String URL = "jdbc:h2:mem:bench;MODE=Oracle;DB_CLOSE_DELAY=-1";
+    public static final String USER = "sa";
+    public static final String PASSWORD = "";
+
+    public static final int MOVIE_ID = 1;
+    public static final int SHOW_ID = 1;
+    public static final int USER_ID = 1;
+
+    private BenchmarkDatabase() {}
+
+    public static void useForDao() {
+        System.setProperty("db.url", URL);
+        System.setProperty("db.user", USER);
+        System.setProperty("db.password", PASSWORD);
+        System.setProperty("db.driver", "org.h2.Driver");
+    }
+
+    public static Connection connect() throws SQLException {
+        return DriverManager.getConnection(URL, USER, PASSWORD);
+    }
+
+    /**
+     * Drop and recreate the schema with one movie and one show whose seats follow a synthetic hall
+     */
+    public static void create(Connection conn, int seatCount, String pattern) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP ALL OBJECTS");
+            stmt.execute("CREATE TABLE movies (movie_id NUMBER PRIMARY KEY, title VARCHAR2(200), genre VARCHAR2(50), " +
+                    "duration NUMBER, description VARCHAR2(1000), status VARCHAR2(20))");
+            stmt.execute("CREATE TABLE shows (show_id NUMBER PRIMARY KEY, movie_id NUMBER, show_date DATE, " +
+                    "show_time VARCHAR2(10), price NUMBER(10,2), available_seats NUMBER)");
+            stmt.execute("CREATE TABLE seats (seat_id NUMBER PRIMARY KEY, show_id NUMBER, seat_row VARCHAR2(5), " +
+                    "seat_number NUMBER, status VARCHAR2(20))");
+            stmt.execute("CREATE INDEX seats_show_idx ON seats (show_id, seat_row, seat_number)");
+            stmt.execute("CREATE TABLE bookings (booking_id NUMBER PRIMARY KEY, user_id NUMBER, show_id NUMBER, " +
+                    "booking_date DATE, total_amount NUMBER(10,2), payment_status VARCHAR2(20), booking_status VARCHAR2(20))");
+            stmt.execute("CREATE INDEX bookings_user_idx ON bookings (user_id, booking_date, booking_id)");
+            stmt.execute("CREATE TABLE booking_details (booking_detail_id NUMBER PRIMARY KEY, booking_id NUMBER, seat_id NUMBER)");
+            stmt.execute("CREATE INDEX booking_details_booking_idx ON booking_details (booking_id)");
+            stmt.execute("CREATE SEQUENCE booking_seq START WITH 1000000");
+            stmt.execute("CREATE SEQUENCE booking_detail_seq START WITH 1000000");
+
+            stmt.execute("INSERT INTO movies VALUES (" + MOVIE_ID + ", 'Benchmark', 'Drama', 120, 'Synthetic movie', 'Active')");
+            stmt.execute("INSERT INTO shows VALUES (" + SHOW_ID + ", " + MOVIE_ID + ", DATE '2030-01-01', '18:30', 250, " + seatCount + ")");
+        }
+
+        List<Seat> seats = SyntheticHall.seats(SHOW_ID, seatCount, pattern);
+        try (PreparedStatement insert = conn.prepareStatement("INSERT INTO seats VALUES (?, ?, ?, ?, ?)")) {
+            for (Seat seat : seats) {
+                insert.setInt(1, seat.getSeatId());
+                insert.setInt(2, seat.getShowId());
+                insert.setString(3, seat.getSeatRow());
+                insert.setInt(4, seat.getSeatNumber());
+                insert.setString(5, seat.getStatus());
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        commitIfNeeded(conn);
+    }
+
+    /**
+     * Give the benchmark user bookingCount past bookings of seatsEach seats (seats are reused, only labels matter)
+     */
+    public static void addBookings(Connection conn, int bookingCount, int seatsEach, int seatCount) throws SQLException {
+        long now = System.currentTimeMillis();
+        try (PreparedStatement booking = conn.prepareStatement("INSERT INTO bookings VALUES (?, ?, ?, ?, ?, 'Completed', 'Active')");
+             PreparedStatement detail = conn.prepareStatement("INSERT INTO booking_details VALUES (?, ?, ?)")) {
+            int detailId = 1;
+            for (int b = 1; b <= bookingCount; b++) {
+                booking.setInt(1, b);
+                booking.setInt(2, USER_ID);
+                booking.setInt(3, SHOW_ID);
+                booking.setTimestamp(4, new Timestamp(now - b * 60_000L));
+                booking.setDouble(5, 250.0 * seatsEach);
+                booking.addBatch();
+                for (int s = 0; s < seatsEach; s++) {
+                    detail.setInt(1, detailId++);
+                    detail.setInt(2, b);
+                    detail.setInt(3, (b * seatsEach + s) % seatCount + 1);
+                    detail.addBatch();
+                }
+            }
+            booking.executeBatch();
+            detail.executeBatch();
+        }
+        commitIfNeeded(conn);
+    }
+
+    private static void commitIfNeeded(Connection conn) throws SQLException {
+        if (!conn.getAutoCommit()) {
+            conn.commit();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.moviebooking.bench;
+
+import com.moviebooking.dao.SeatDAO;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * SeatDAO.bookSeats against embedded H2: one conditional UPDATE plus one batched insert
+ *
+ * Each invocation claims the next block of seats on an open transaction and rolls it back,
+ * so the hall stays free and every call does the same work. The rollback is included
+ * in the measured time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BookSeatsBenchmark {
+
+    private static final int HALL_SEATS = 2000;
+
+    @Param({"1", "4", "10"})
+    public int seatsPerBooking;
+
+    private final SeatDAO seatDAO = new SeatDAO();
+    private Connection conn;
+    private List<List<Integer>> blocks;
+    private int next;
+
+    @Setup
+    public void setUp() throws SQLException {
+        conn = BenchmarkDatabase.connect();
+        BenchmarkDatabase.create(conn, HALL_SEATS, "empty");
+        conn.setAutoCommit(false);
+
+        blocks = new ArrayList<>();
+        for (int first = 1; first + seatsPerBooking - 1 <= HALL_SEATS; first += seatsPerBooking) {
+            List<Integer> block = new ArrayList<>(seatsPerBooking);
+            for (int id = first; id < first + seatsPerBooking; id++) {
+                block.add(id);
+            }
+            blocks.add(block);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    @Benchmark
+    public boolean bookSeats() throws SQLException {
+        List<Integer> block = blocks.get(next);
+        next = (next + 1) % blocks.size();
+        boolean booked = seatDAO.bookSeats(block, 1, conn);
+        conn.rollback();
+        if (!booked) {
+            throw new IllegalStateException("Seats " + block + " were not free");
+        }
+        return booked;
+    }
+}
@@ -0,0 +1,66 @@
+package com.moviebooking.bench;
+
+import com.moviebooking.cache.ShowSeatMap;
+import com.moviebooking.dao.BookingDAO;
+import com.moviebooking.dao.SeatDAO;
+import com.moviebooking.model.BookingHistoryPage;
+import com.moviebooking.model.Seat;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Row-to-model mapping through the real DAO methods (and the connection pool) on embedded H2
+ *
+ * loadSeatMap maps seat rows to Seat beans and builds the ShowSeatMap, toSeats maps the
+ * resident map back to beans for the seat page, bookingHistoryPage maps a page of booking
+ * rows plus their seat labels.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ModelMappingBenchmark {
+
+    private static final int PAST_BOOKINGS = 200;
+    private static final int SEATS_PER_BOOKING = 4;
+    private static final int HISTORY_PAGE_SIZE = 20;
+
+    @Param({"100", "2000"})
+    public int seats;
+
+    private SeatDAO seatDAO;
+    private BookingDAO bookingDAO;
+    private ShowSeatMap seatMap;
+
+    @Setup
+    public void setUp() throws SQLException {
+        BenchmarkDatabase.useForDao();
+        try (Connection conn = BenchmarkDatabase.connect()) {
+            BenchmarkDatabase.create(conn, seats, "random30");
+            BenchmarkDatabase.addBookings(conn, PAST_BOOKINGS, SEATS_PER_BOOKING, seats);
+        }
+        seatDAO = new SeatDAO();
+        bookingDAO = new BookingDAO();
+        seatMap = seatDAO.loadSeatMap(BenchmarkDatabase.SHOW_ID);
+    }
+
+    @Benchmark
+    public ShowSeatMap loadSeatMap() throws SQLException {
+        return seatDAO.loadSeatMap(BenchmarkDatabase.SHOW_ID);
+    }
+
+    @Benchmark
+    public List<Seat> toSeats() {
+        return seatMap.toSeats();
+    }
+
+    @Benchmark
+    public BookingHistoryPage bookingHistoryPage() {
+        return bookingDAO.getUserBookingHistory(BenchmarkDatabase.USER_ID, null, 0, HISTORY_PAGE_SIZE);
+    }
+}
@@ -0,0 +1,105 @@
+package com.moviebooking.bench;
+
+import com.moviebooking.cache.ShowSeatMap;
+import com.moviebooking.dao.AdvancedSeatSearchDAO;
+import com.moviebooking.dao.AdvancedSeatSearchDAO.SeatArrangement;
+import com.moviebooking.search.Candidate;
+import com.moviebooking.search.FreeSeatView;
+import com.moviebooking.search.ScatteredStrategy;
+import com.moviebooking.search.ScoringModel;
+import com.moviebooking.search.SearchContext;
+import com.moviebooking.search.SeatSearchStrategy;
+import com.moviebooking.search.SingleRowStrategy;
+import com.moviebooking.search.SplitRowStrategy;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Group seat search on synthetic halls of 100 to 2,000 seats
+ *
+ * fullSearch is what GroupSeatSearchServlet pays per request (engine, time budget and
+ * mapping to beans). The other three run one strategy each on a prepared FreeSeatView
+ * with no deadline, keeping as many results as the full search returns. bookAndRelease
+ * is the seat map's free-run index maintenance for one booking and its cancellation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SeatSearchBenchmark {
+
+    private static final long NO_DEADLINE = TimeUnit.HOURS.toNanos(1);
+
+    @Param({"100", "500", "2000"})
+    public int seats;
+
+    @Param({"empty", "random30", "random70", "checkerboard"})
+    public String fragmentation;
+
+    @Param({"2", "6"})
+    public int groupSize;
+
+    private final AdvancedSeatSearchDAO dao = new AdvancedSeatSearchDAO();
+    private final ScoringModel scoring = ScoringModel.defaults();
+    private ShowSeatMap seatMap;
+    private FreeSeatView view;
+    private List<Integer> middleSeat;
+
+    @Setup
+    public void setUp() {
+        seatMap = SyntheticHall.seatMap(1, seats, fragmentation);
+        view = new FreeSeatView(seatMap);
+        // A free seat near the middle, so every call really splits and re-merges a run
+        int middle = seats / 2;
+        while (middle < seats - 1 && !seatMap.isAvailable(middle)) {
+            middle++;
+        }
+        middleSeat = Collections.singletonList(seatMap.getSeatId(middle));
+    }
+
+    @Benchmark
+    public List<SeatArrangement> fullSearch() {
+        return dao.findAllBestSeatsForGroup(seatMap, groupSize);
+    }
+
+    @Benchmark
+    public List<Candidate> singleRow() {
+        return run(new SingleRowStrategy());
+    }
+
+    @Benchmark
+    public List<Candidate> splitRow() {
+        return run(new SplitRowStrategy());
+    }
+
+    @Benchmark
+    public List<Candidate> scattered() {
+        return run(new ScatteredStrategy());
+    }
+
+    @Benchmark
+    public FreeSeatView freeSeatView() {
+        return new FreeSeatView(seatMap);
+    }
+
+    @Benchmark
+    public int bookAndRelease() {
+        return seatMap.markBooked(middleSeat) + seatMap.markAvailable(middleSeat);
+    }
+
+    @Benchmark
+    public int[] freeRuns() {
+        return seatMap.getFreeRuns(groupSize);
+    }
+
+    private List<Candidate> run(SeatSearchStrategy strategy) {
+        SearchContext context = new SearchContext(view, groupSize, scoring,
+                AdvancedSeatSearchDAO.DEFAULT_RESULT_LIMIT, System.nanoTime() + NO_DEADLINE);
+        strategy.search(context);
+        return context.close();
+    }
+}
@@ -0,0 +1,62 @@
+package com.moviebooking.bench;
+
+import com.moviebooking.cache.ShowSeatMap;
+import com.moviebooking.model.Seat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic halls for the benchmarks
+ *
+ * Rows hold SEATS_PER_ROW seats and are labelled AA, AB, ... so that label order is row
+ * order. The fragmentation patterns decide which seats are already booked:
+ *   empty        - nothing booked, the single-row search succeeds in the first row
+ *   random30     - 30% of seats booked at random
+ *   random70     - 70% of seats booked at random, few long free runs are left
+ *   checkerboard - every other seat booked, no two free seats are adjacent in a row
+ */
+public final class SyntheticHall {
+
+    public static final int SEATS_PER_ROW = 20;
+
+    private static final long SEED = 42;
+
+    private SyntheticHall() {}
+
+    public static List<Seat> seats(int showId, int seatCount, String pattern) {
+        Random random = new Random(SEED);
+        List<Seat> seats = new ArrayList<>(seatCount);
+        for (int i = 0; i < seatCount; i++) {
+            int row = i / SEATS_PER_ROW;
+            int number = i % SEATS_PER_ROW + 1;
+            boolean booked = isBooked(pattern, row, number, random);
+            seats.add(new Seat(i + 1, showId, rowLabel(row), number,
+                    booked ? ShowSeatMap.BOOKED : ShowSeatMap.AVAILABLE));
+        }
+        return seats;
+    }
+
+    public static ShowSeatMap seatMap(int showId, int seatCount, String pattern) {
+        return new ShowSeatMap(showId, seats(showId, seatCount, pattern));
+    }
+
+    public static String rowLabel(int row) {
+        return "" + (char) ('A' + row / 26) + (char) ('A' + row % 26);
+    }
+
+    private static boolean isBooked(String pattern, int row, int number, Random random) {
+        switch (pattern) {
+            case "empty":
+                return false;
+            case "random30":
+                return random.nextDouble() < 0.3;
+            case "random70":
+                return random.nextDouble() < 0.7;
+            case "checkerboard":
+                return (row + number) % 2 == 0;
+            default:
+                throw new IllegalArgumentException("Unknown fragmentation pattern: " + pattern);
+        }
+    }
+}
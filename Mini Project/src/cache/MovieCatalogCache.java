@@ -0,0 +1,211 @@
+package com.moviebooking.cache;
+
+import com.moviebooking.dao.MovieDAO;
+import com.moviebooking.model.Movie;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache of the movie catalog
+ *
+ * Holds the active-movie list and a size-bounded LRU of movies by id. Entries expire
+ * after TTL_MS and can be dropped explicitly when the movies table is edited.
+ * Concurrent misses for the same key share one database load, and a load that races
+ * with an invalidation is not stored. Cached movies are shared - treat them as read-only.
+ */
+public class MovieCatalogCache {
+
+    private static final long TTL_MS = 5 * 60 * 1000;
+    private static final int MAX_MOVIES = 500;
+    private static final String ALL_ACTIVE_KEY = "active";
+
+    private static final MovieCatalogCache INSTANCE = new MovieCatalogCache();
+
+    private final MovieDAO movieDAO = new MovieDAO();
+
+    // movieId -> entry, least recently used first
+    private final LinkedHashMap<Integer, Entry<Movie>> movies = new LinkedHashMap<Integer, Entry<Movie>>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Entry<Movie>> eldest) {
+            if (size() > MAX_MOVIES) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+    private volatile Entry<List<Movie>> activeMovies;
+
+    // key -> load in progress, so a cold miss under load hits the database once
+    private final ConcurrentHashMap<Object, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+    // Bumped by every invalidation; loads started before it are not stored
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong loadFailures = new AtomicLong();
+    private final AtomicLong totalLoadNanos = new AtomicLong();
+
+    private MovieCatalogCache() {}
+
+    public static MovieCatalogCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Active movies, newest release first
+     */
+    public List<Movie> getActiveMovies() throws SQLException {
+        Entry<List<Movie>> entry = activeMovies;
+        if (entry != null && !entry.isExpired(System.currentTimeMillis())) {
+            hits.incrementAndGet();
+            return entry.value;
+        }
+        misses.incrementAndGet();
+
+        return coalesce(ALL_ACTIVE_KEY, () -> {
+            long gen = generation.get();
+            List<Movie> loaded = Collections.unmodifiableList(timedLoad(movieDAO::loadActiveMovies));
+            if (generation.get() == gen) {
+                activeMovies = new Entry<>(loaded);
+                // The list is also the freshest copy of each active movie
+                synchronized (movies) {
+                    for (Movie movie : loaded) {
+                        movies.put(movie.getMovieId(), new Entry<>(movie));
+                    }
+                }
+            }
+            return loaded;
+        });
+    }
+
+    /**
+     * Movie by id, or null if there is no such movie
+     */
+    public Movie getMovie(int movieId) throws SQLException {
+        Entry<Movie> entry;
+        synchronized (movies) {
+            entry = movies.get(movieId);
+        }
+        if (entry != null && !entry.isExpired(System.currentTimeMillis())) {
+            hits.incrementAndGet();
+            return entry.value;
+        }
+        misses.incrementAndGet();
+
+        return coalesce(movieId, () -> {
+            long gen = generation.get();
+            Movie loaded = timedLoad(() -> movieDAO.loadMovieById(movieId));
+            // Unknown ids are not cached
+            if (loaded != null && generation.get() == gen) {
+                synchronized (movies) {
+                    movies.put(movieId, new Entry<>(loaded));
+                }
+            }
+            return loaded;
+        });
+    }
+
+    /**
+     * Drop one movie (and the active list it may appear in) after it was edited
+     */
+    public void invalidate(int movieId) {
+        generation.incrementAndGet();
+        synchronized (movies) {
+            movies.remove(movieId);
+        }
+        activeMovies = null;
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        synchronized (movies) {
+            movies.clear();
+        }
+        activeMovies = null;
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getEvictions() { return evictions.get(); }
+    public long getLoads() { return loads.get(); }
+    public long getLoadFailures() { return loadFailures.get(); }
+    public long getTotalLoadNanos() { return totalLoadNanos.get(); }
+
+    public int getSize() {
+        synchronized (movies) {
+            return movies.size();
+        }
+    }
+
+    /**
+     * Run the loader, or wait for the same key's load already in progress
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T coalesce(Object key, Loader<T> loader) throws SQLException {
+        CompletableFuture<T> mine = new CompletableFuture<>();
+        CompletableFuture<T> running = (CompletableFuture<T>) inFlight.putIfAbsent(key, mine);
+
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof SQLException) {
+                    throw (SQLException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        try {
+            T value = loader.load();
+            mine.complete(value);
+            return value;
+        } catch (SQLException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private <T> T timedLoad(Loader<T> loader) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            T value = loader.load();
+            loads.incrementAndGet();
+            return value;
+        } catch (SQLException e) {
+            loadFailures.incrementAndGet();
+            throw e;
+        } finally {
+            totalLoadNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private interface Loader<T> {
+        T load() throws SQLException;
+    }
+
+    private static class Entry<T> {
+        final T value;
+        final long loadedAt = System.currentTimeMillis();
+
+        Entry(T value) {
+            this.value = value;
+        }
+
+        boolean isExpired(long now) {
+            return now - loadedAt >= TTL_MS;
+        }
+    }
+}
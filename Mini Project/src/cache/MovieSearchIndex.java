@@ -0,0 +1,270 @@
+package com.moviebooking.cache;
+
+import com.moviebooking.model.Movie;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over the active movie catalog
+ *
+ * Title, genre and description are split into lowercase word tokens kept in a sorted
+ * term dictionary, so a query word matches every term it is a prefix of. All query
+ * words must match; results are ranked by where they matched (title over genre over
+ * description, whole word over prefix) and then by title. The index follows the
+ * catalog cache: when the cached list is reloaded only movies that changed are re-indexed.
+ */
+public class MovieSearchIndex {
+
+    // Field bits stored in the postings, and the score of a hit in each field
+    private static final int TITLE = 1;
+    private static final int GENRE = 2;
+    private static final int DESCRIPTION = 4;
+
+    private static final int TITLE_WORD_SCORE = 100;
+    private static final int TITLE_PREFIX_SCORE = 60;
+    private static final int GENRE_WORD_SCORE = 40;
+    private static final int GENRE_PREFIX_SCORE = 25;
+    private static final int DESCRIPTION_WORD_SCORE = 10;
+    private static final int DESCRIPTION_PREFIX_SCORE = 5;
+
+    private static final MovieSearchIndex INSTANCE = new MovieSearchIndex();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // term -> (movieId -> field bits)
+    private final TreeMap<String, Map<Integer, Integer>> postings = new TreeMap<>();
+    private final Map<Integer, IndexedMovie> indexed = new HashMap<>();
+    private volatile List<Movie> indexedCatalog;
+
+    private MovieSearchIndex() {}
+
+    public static MovieSearchIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Active movies matching every word of the query, best match first
+     */
+    public List<Movie> search(String query) throws SQLException {
+        List<Movie> catalog = MovieCatalogCache.getInstance().getActiveMovies();
+        if (catalog != indexedCatalog) {
+            refresh(catalog);
+        }
+
+        List<String> words = tokenize(query);
+        List<Movie> results = new ArrayList<>();
+        if (words.isEmpty()) {
+            return results;
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Integer, Integer> scores = null;
+            for (String word : words) {
+                Map<Integer, Integer> wordScores = scoreWord(word);
+                if (scores == null) {
+                    scores = wordScores;
+                } else {
+                    // Every word must match - keep the intersection
+                    scores.keySet().retainAll(wordScores.keySet());
+                    for (Map.Entry<Integer, Integer> entry : scores.entrySet()) {
+                        entry.setValue(entry.getValue() + wordScores.get(entry.getKey()));
+                    }
+                }
+                if (scores.isEmpty()) {
+                    return results;
+                }
+            }
+
+            List<Map.Entry<Integer, Integer>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort((a, b) -> {
+                int byScore = Integer.compare(b.getValue(), a.getValue());
+                if (byScore != 0) {
+                    return byScore;
+                }
+                return indexed.get(a.getKey()).sortTitle.compareTo(indexed.get(b.getKey()).sortTitle);
+            });
+            for (Map.Entry<Integer, Integer> entry : ranked) {
+                results.add(indexed.get(entry.getKey()).movie);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return results;
+    }
+
+    /**
+     * Re-index one movie after it was edited (or drop it if it is no longer active)
+     */
+    public void update(Movie movie) {
+        lock.writeLock().lock();
+        try {
+            removeMovie(movie.getMovieId());
+            if ("Active".equals(movie.getStatus())) {
+                addMovie(movie);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int movieId) {
+        lock.writeLock().lock();
+        try {
+            removeMovie(movieId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int getIndexedCount() {
+        lock.readLock().lock();
+        try {
+            return indexed.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getTermCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bring the index in line with a freshly loaded catalog, touching only changed movies
+     */
+    private void refresh(List<Movie> catalog) {
+        lock.writeLock().lock();
+        try {
+            if (catalog == indexedCatalog) {
+                return;
+            }
+            Set<Integer> present = new HashSet<>();
+            for (Movie movie : catalog) {
+                present.add(movie.getMovieId());
+                IndexedMovie current = indexed.get(movie.getMovieId());
+                if (current == null || !current.signature.equals(signature(movie))) {
+                    removeMovie(movie.getMovieId());
+                    addMovie(movie);
+                } else {
+                    // Same text, but keep the newest instance for the results
+                    current.movie = movie;
+                }
+            }
+            for (Integer movieId : new ArrayList<>(indexed.keySet())) {
+                if (!present.contains(movieId)) {
+                    removeMovie(movieId);
+                }
+            }
+            indexedCatalog = catalog;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Best field score of every movie having a term that starts with this word
+    private Map<Integer, Integer> scoreWord(String word) {
+        Map<Integer, Integer> scores = new HashMap<>();
+        SortedMap<String, Map<Integer, Integer>> matches = postings.subMap(word, word + Character.MAX_VALUE);
+        for (Map.Entry<String, Map<Integer, Integer>> match : matches.entrySet()) {
+            boolean wholeWord = match.getKey().length() == word.length();
+            for (Map.Entry<Integer, Integer> posting : match.getValue().entrySet()) {
+                int score = fieldScore(posting.getValue(), wholeWord);
+                scores.merge(posting.getKey(), score, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    private int fieldScore(int fields, boolean wholeWord) {
+        if ((fields & TITLE) != 0) {
+            return wholeWord ? TITLE_WORD_SCORE : TITLE_PREFIX_SCORE;
+        }
+        if ((fields & GENRE) != 0) {
+            return wholeWord ? GENRE_WORD_SCORE : GENRE_PREFIX_SCORE;
+        }
+        return wholeWord ? DESCRIPTION_WORD_SCORE : DESCRIPTION_PREFIX_SCORE;
+    }
+
+    private void addMovie(Movie movie) {
+        Map<String, Integer> terms = new HashMap<>();
+        addTerms(terms, movie.getTitle(), TITLE);
+        addTerms(terms, movie.getGenre(), GENRE);
+        addTerms(terms, movie.getDescription(), DESCRIPTION);
+
+        for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), t -> new HashMap<>()).put(movie.getMovieId(), term.getValue());
+        }
+        indexed.put(movie.getMovieId(), new IndexedMovie(movie, terms.keySet(), signature(movie)));
+    }
+
+    private void removeMovie(int movieId) {
+        IndexedMovie old = indexed.remove(movieId);
+        if (old == null) {
+            return;
+        }
+        for (String term : old.terms) {
+            Map<Integer, Integer> movies = postings.get(term);
+            if (movies != null) {
+                movies.remove(movieId);
+                if (movies.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private void addTerms(Map<String, Integer> terms, String text, int field) {
+        for (String token : tokenize(text)) {
+            terms.merge(token, field, (a, b) -> a | b);
+        }
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    private static String signature(Movie movie) {
+        return movie.getTitle() + '\u0000' + movie.getGenre() + '\u0000' + movie.getDescription();
+    }
+
+    private static class IndexedMovie {
+        Movie movie;
+        final Set<String> terms;
+        final String signature;
+        final String sortTitle;
+
+        IndexedMovie(Movie movie, Set<String> terms, String signature) {
+            this.movie = movie;
+            this.terms = new HashSet<>(terms);
+            this.signature = signature;
+            this.sortTitle = movie.getTitle() == null ? "" : movie.getTitle();
+        }
+    }
+}
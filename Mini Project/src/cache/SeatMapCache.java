@@ -0,0 +1,134 @@
+package com.moviebooking.cache;
+
+import com.moviebooking.dao.SeatDAO;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Process-wide registry of resident seat maps, one per show
+ *
+ * A show's seats are read from the database once; after that seat-map reads are
+ * served from memory and the booking / cancellation paths update occupancy after
+ * their transaction commits. Maps are reloaded after REFRESH_AFTER_MS as a safety
+ * net for changes made outside the application (triggers, manual fixes).
+ * Registered listeners hear about every occupancy change after it was applied.
+ */
+public class SeatMapCache {
+
+    private static final long REFRESH_AFTER_MS = 10 * 60 * 1000;
+
+    private static final SeatMapCache INSTANCE = new SeatMapCache();
+
+    private final ConcurrentHashMap<Integer, ShowSeatMap> maps = new ConcurrentHashMap<>();
+    private final SeatDAO seatDAO = new SeatDAO();
+    // Unknown shows are not cached
+    private final ShowLoads<ShowSeatMap> loads = new ShowLoads<>(maps, id -> {
+        ShowSeatMap loaded = seatDAO.loadSeatMap(id);
+        return loaded.getSeatCount() > 0 ? loaded : null;
+    });
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    private SeatMapCache() {}
+
+    public static SeatMapCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Seat map of a show, loading it on first use
+     * Concurrent first requests for the same show share a single database load
+     */
+    public ShowSeatMap get(int showId) throws SQLException {
+        ShowSeatMap map = maps.get(showId);
+        if (map != null && System.currentTimeMillis() - map.getLoadedAt() < REFRESH_AFTER_MS) {
+            return map;
+        }
+        if (map != null && maps.remove(showId, map)) {
+            notifyDropped(showId);
+        }
+        return loads.get(showId);
+    }
+
+    /**
+     * Seat map of a show only if it is already resident (never touches the database)
+     */
+    public ShowSeatMap peek(int showId) {
+        return maps.get(showId);
+    }
+
+    /**
+     * Record seats booked by a committed transaction
+     * A load in progress, which may not have read the commit yet, gets the change replayed
+     */
+    public void markBooked(int showId, List<Integer> seatIds) {
+        loads.update(showId, map -> {
+            if (map.markBooked(seatIds) > 0) {
+                notifyChanged(map, seatIds, true);
+            }
+        });
+    }
+
+    /**
+     * Record seats released by a committed cancellation
+     */
+    public void markAvailable(int showId, List<Integer> seatIds) {
+        loads.update(showId, map -> {
+            if (map.markAvailable(seatIds) > 0) {
+                notifyChanged(map, seatIds, false);
+            }
+        });
+    }
+
+    public void invalidate(int showId) {
+        loads.invalidate(showId);
+        if (maps.remove(showId) != null) {
+            notifyDropped(showId);
+        }
+    }
+
+    public void invalidateAll() {
+        loads.invalidateAll();
+        for (Integer showId : new ArrayList<>(maps.keySet())) {
+            invalidate(showId);
+        }
+    }
+
+    public void addListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    // Only for the resident map: a change replayed onto a map still loading has nobody to tell
+    private void notifyChanged(ShowSeatMap map, List<Integer> seatIds, boolean booked) {
+        if (maps.get(map.getShowId()) == map) {
+            for (ChangeListener listener : listeners) {
+                listener.seatsChanged(map, seatIds, booked);
+            }
+        }
+    }
+
+    private void notifyDropped(int showId) {
+        for (ChangeListener listener : listeners) {
+            listener.mapDropped(showId);
+        }
+    }
+
+    /**
+     * Called on the thread that changed the map, with the show's entry locked -
+     * implementations must not block or call back into the cache
+     */
+    public interface ChangeListener {
+
+        /**
+         * Seats of a resident map were booked (booked = true) or released
+         */
+        void seatsChanged(ShowSeatMap map, List<Integer> seatIds, boolean booked);
+
+        /**
+         * A show's map was dropped and is reloaded from the database on next use
+         */
+        void mapDropped(int showId);
+    }
+}
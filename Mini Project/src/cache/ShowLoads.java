@@ -0,0 +1,162 @@
+package com.moviebooking.cache;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * First loads of a per-show resident value, kept out of the cache map's locks
+ *
+ * The database read runs outside ConcurrentHashMap.compute*, so it never holds a bin lock
+ * and other shows in the same bin are not held up; concurrent misses for one show share a
+ * single load. Changes committed while a load runs are recorded and replayed, in order,
+ * onto the loaded value before it is published - the load may or may not have read them,
+ * so changes must be idempotent (the last change to an item decides its state). An
+ * invalidation while a load runs keeps that load from being published.
+ */
+final class ShowLoads<V> {
+
+    interface Source<V> {
+        /** The show's value from the database, or null if it must not be cached */
+        V load(int showId) throws SQLException;
+    }
+
+    private final ConcurrentHashMap<Integer, V> values;
+    private final Source<V> source;
+    private final Consumer<V> beforePublish;
+    private final ConcurrentHashMap<Integer, Load<V>> inFlight = new ConcurrentHashMap<>();
+
+    ShowLoads(ConcurrentHashMap<Integer, V> values, Source<V> source) {
+        this(values, source, null);
+    }
+
+    /**
+     * beforePublish runs on a loaded value (changes already replayed) just before it is put in the map
+     */
+    ShowLoads(ConcurrentHashMap<Integer, V> values, Source<V> source, Consumer<V> beforePublish) {
+        this.values = values;
+        this.source = source;
+        this.beforePublish = beforePublish;
+    }
+
+    /**
+     * The show's resident value, loading it if needed or waiting for the load already in progress
+     */
+    V get(int showId) throws SQLException {
+        V value = values.get(showId);
+        if (value != null) {
+            return value;
+        }
+
+        Load<V> mine = new Load<>();
+        Load<V> running = inFlight.putIfAbsent(showId, mine);
+        if (running != null) {
+            return running.await();
+        }
+        try {
+            // Published by a load that finished while this one registered
+            value = values.get(showId);
+            if (value == null) {
+                V loaded = source.load(showId);
+                value = loaded != null ? publish(showId, mine, loaded) : null;
+            }
+            mine.future.complete(value);
+            return value;
+        } catch (SQLException | RuntimeException e) {
+            mine.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(showId, mine);
+        }
+    }
+
+    /**
+     * Apply a committed change to the resident value, or record it for the load in progress
+     * Does nothing if the show is neither loaded nor loading (its next load reads the change).
+     */
+    void update(int showId, Consumer<V> change) {
+        while (true) {
+            if (values.computeIfPresent(showId, (id, value) -> {
+                change.accept(value);
+                return value;
+            }) != null) {
+                return;
+            }
+            Load<V> load = inFlight.get(showId);
+            if (load == null ? !values.containsKey(showId) : load.record(change)) {
+                return;
+            }
+            // The load published its value meanwhile - apply the change to that
+        }
+    }
+
+    /**
+     * Keep the load in progress (if any) from publishing; call before removing the value from the map
+     */
+    void invalidate(int showId) {
+        Load<V> load = inFlight.get(showId);
+        if (load != null) {
+            load.invalidate();
+        }
+    }
+
+    void invalidateAll() {
+        for (Load<V> load : inFlight.values()) {
+            load.invalidate();
+        }
+    }
+
+    private V publish(int showId, Load<V> load, V loaded) {
+        synchronized (load) {
+            for (Consumer<V> change : load.pending) {
+                change.accept(loaded);
+            }
+            load.pending = null;
+            if (load.invalidated) {
+                return loaded;
+            }
+            if (beforePublish != null) {
+                beforePublish.accept(loaded);
+            }
+            V current = values.putIfAbsent(showId, loaded);
+            return current != null ? current : loaded;
+        }
+    }
+
+    private static final class Load<T> {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        // Changes committed during the load, null once it has published (or given up)
+        List<Consumer<T>> pending = new ArrayList<>();
+        boolean invalidated;
+
+        /**
+         * False if the load has already published its value, so the change must go to the map
+         */
+        synchronized boolean record(Consumer<T> change) {
+            if (pending == null) {
+                return invalidated;
+            }
+            pending.add(change);
+            return true;
+        }
+
+        synchronized void invalidate() {
+            invalidated = true;
+        }
+
+        T await() throws SQLException {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof SQLException) {
+                    throw (SQLException) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+}
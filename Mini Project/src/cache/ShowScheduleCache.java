@@ -0,0 +1,146 @@
+package com.moviebooking.cache;
+
+import com.moviebooking.dao.ShowDAO;
+import com.moviebooking.model.Show;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of show details and per-movie schedules
+ *
+ * Price, formatted time and seat capacity never change once a show is scheduled, so they
+ * are read once and shared (the live seat count is kept by ShowSeatCounters).
+ * Every Show instance lives in one id map; schedules only keep the ordered show ids.
+ * Entries are reloaded after REFRESH_AFTER_MS.
+ */
+public class ShowScheduleCache {
+
+    private static final long REFRESH_AFTER_MS = 10 * 60 * 1000;
+
+    private static final ShowScheduleCache INSTANCE = new ShowScheduleCache();
+
+    private final ConcurrentHashMap<Integer, Entry<Show>> shows = new ConcurrentHashMap<>();
+    // movieId -> show ids ordered by date and time
+    private final ConcurrentHashMap<Integer, Entry<List<Integer>>> schedules = new ConcurrentHashMap<>();
+    private final ShowDAO showDAO = new ShowDAO();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private ShowScheduleCache() {}
+
+    public static ShowScheduleCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Show by id, or null if there is no such show
+     */
+    public Show getShow(int showId) throws SQLException {
+        Entry<Show> entry = shows.get(showId);
+        if (entry != null && !entry.isExpired(System.currentTimeMillis())) {
+            hits.incrementAndGet();
+            return entry.value;
+        }
+        return getShows(Collections.singletonList(showId)).get(showId);
+    }
+
+    /**
+     * Shows by id; everything not cached is loaded with a single query
+     */
+    public Map<Integer, Show> getShows(Collection<Integer> showIds) throws SQLException {
+        long now = System.currentTimeMillis();
+        Map<Integer, Show> result = new HashMap<>();
+        Set<Integer> missing = new LinkedHashSet<>();
+
+        for (Integer showId : showIds) {
+            Entry<Show> entry = shows.get(showId);
+            if (entry != null && !entry.isExpired(now)) {
+                hits.incrementAndGet();
+                result.put(showId, entry.value);
+            } else {
+                missing.add(showId);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            misses.addAndGet(missing.size());
+            for (Show show : showDAO.loadShows(new ArrayList<>(missing))) {
+                result.put(show.getShowId(), store(show));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Shows of a movie ordered by date and time (empty if it has none)
+     */
+    public List<Show> getSchedule(int movieId) throws SQLException {
+        Entry<List<Integer>> schedule = schedules.get(movieId);
+        if (schedule == null || schedule.isExpired(System.currentTimeMillis())) {
+            List<Integer> showIds = new ArrayList<>();
+            for (Show show : showDAO.loadShowsByMovie(movieId)) {
+                store(show);
+                showIds.add(show.getShowId());
+            }
+            schedule = new Entry<>(Collections.unmodifiableList(showIds));
+            schedules.put(movieId, schedule);
+        }
+
+        Map<Integer, Show> byId = getShows(schedule.value);
+        List<Show> ordered = new ArrayList<>(schedule.value.size());
+        for (Integer showId : schedule.value) {
+            Show show = byId.get(showId);
+            if (show != null) {
+                ordered.add(show);
+            }
+        }
+        return ordered;
+    }
+
+    public void invalidate(int showId) {
+        shows.remove(showId);
+    }
+
+    public void invalidateMovie(int movieId) {
+        schedules.remove(movieId);
+    }
+
+    public void invalidateAll() {
+        shows.clear();
+        schedules.clear();
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    public int getSize() { return shows.size(); }
+
+    // Keep a fresh instance that is already cached, so readers share one copy
+    private Show store(Show loaded) {
+        long now = System.currentTimeMillis();
+        return shows.compute(loaded.getShowId(), (id, current) ->
+                current != null && !current.isExpired(now) ? current : new Entry<>(loaded)).value;
+    }
+
+    private static class Entry<T> {
+        final T value;
+        final long loadedAt = System.currentTimeMillis();
+
+        Entry(T value) {
+            this.value = value;
+        }
+
+        boolean isExpired(long now) {
+            return now - loadedAt >= REFRESH_AFTER_MS;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.moviebooking.cache;
+
+import com.moviebooking.dao.ShowDAO;
+import com.moviebooking.util.Log;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live available-seat counters, one per show
+ *
+ * Bookings, cancellations and waitlist reservations adjust the counter after their
+ * transaction commits instead of updating the shows row inside it, so bookings for a
+ * show no longer queue on one hot row. A background flusher writes changed counters
+ * back to shows.available_seats every FLUSH_INTERVAL_MS. A counter is always seeded
+ * from the seats table (free seats minus seats reserved for notified waitlist users),
+ * so a restart or invalidation recovers the true value whatever the shows row says.
+ *
+ * Each show has a read-write lock (striped). A booking holds the shared side from the
+ * start of its transaction until its add(); a waitlist promotion holds the exclusive side
+ * from the start of its transaction, across the counter read, until its add() - the
+ * serialization the shows row lock used to give, so two promotions never hand out the
+ * same free seats. Take the lock before any database lock, never the other way round.
+ */
+public class ShowSeatCounters {
+
+    private static final Log log = Log.getLogger(ShowSeatCounters.class);
+
+    private static final long FLUSH_INTERVAL_MS = 5_000;
+    private static final int LOCK_STRIPES = 64;
+
+    private static final ShowSeatCounters INSTANCE = new ShowSeatCounters();
+
+    private final ConcurrentHashMap<Integer, Counter> counters = new ConcurrentHashMap<>();
+    private final ShowDAO showDAO = new ShowDAO();
+    private final ShowLoads<Counter> loads = new ShowLoads<>(counters, id -> new Counter(showDAO.loadAvailableSeats(id)));
+    private final ScheduledExecutorService flusher;
+    private final ReentrantReadWriteLock[] locks = new ReentrantReadWriteLock[LOCK_STRIPES];
+
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+
+    private ShowSeatCounters() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "seat-counter-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public static ShowSeatCounters getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Seats currently available for a show, seeding the counter on first use
+     * Must not be called while holding the show's changeLock.
+     */
+    public int getAvailable(int showId) throws SQLException {
+        Counter counter = counters.get(showId);
+        if (counter != null) {
+            return counter.available.get();
+        }
+        // The seed is read under the exclusive lock: a change that committed before the read but
+        // has not reached add() yet would otherwise be counted twice, once by the read, once by add()
+        Lock seedLock = promotionLock(showId);
+        seedLock.lock();
+        try {
+            return loads.get(showId).available.get();
+        } finally {
+            seedLock.unlock();
+        }
+    }
+
+    /**
+     * Shared lock for a transaction that moves the counter by a known delta (a booking)
+     */
+    public Lock changeLock(int showId) {
+        return stripe(showId).readLock();
+    }
+
+    /**
+     * Exclusive lock for a transaction that reads the counter to decide what to reserve (a waitlist promotion)
+     */
+    public Lock promotionLock(int showId) {
+        return stripe(showId).writeLock();
+    }
+
+    /**
+     * Apply a committed change (negative = seats taken), ignored if the show is not loaded yet
+     * since its first load reads the committed seats anyway
+     * The caller holds the show's changeLock or promotionLock from before its commit, so a
+     * seed never reads the change's commit and then sees the change again here.
+     */
+    public void add(int showId, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        // Never replayed onto a seed (not idempotent): the lock keeps seeds and changes apart
+        loads.update(showId, counter -> counter.available.addAndGet(delta));
+    }
+
+    /**
+     * Forget a counter so that it is re-seeded from the seats table (after changes made by triggers)
+     */
+    public void invalidate(int showId) {
+        loads.invalidate(showId);
+        counters.remove(showId);
+    }
+
+    public void invalidateAll() {
+        loads.invalidateAll();
+        counters.clear();
+    }
+
+    /**
+     * Write every counter that changed since the last flush to shows.available_seats
+     */
+    public void flush() throws SQLException {
+        Map<Integer, Integer> changed = new HashMap<>();
+        Map<Integer, Counter> flushedCounters = new HashMap<>();
+        for (Map.Entry<Integer, Counter> entry : counters.entrySet()) {
+            Counter counter = entry.getValue();
+            int value = counter.available.get();
+            if (value != counter.flushed) {
+                changed.put(entry.getKey(), value);
+                flushedCounters.put(entry.getKey(), counter);
+            }
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        showDAO.updateAvailableSeats(changed);
+        for (Map.Entry<Integer, Counter> entry : flushedCounters.entrySet()) {
+            entry.getValue().flushed = changed.get(entry.getKey());
+        }
+        flushes.incrementAndGet();
+        rowsWritten.addAndGet(changed.size());
+    }
+
+    public int getTrackedShows() { return counters.size(); }
+    public long getFlushCount() { return flushes.get(); }
+    public long getRowsWritten() { return rowsWritten.get(); }
+    public long getFlushFailures() { return flushFailures.get(); }
+
+    /**
+     * Stop the flusher and write the last changes - called before the connection pool closes
+     */
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+    }
+
+    private ReentrantReadWriteLock stripe(int showId) {
+        return locks[Math.floorMod(showId, LOCK_STRIPES)];
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException | RuntimeException e) {
+            // Counters stay dirty and are retried on the next run
+            flushFailures.incrementAndGet();
+            log.warn("seatCounters.flush.failed", e, "tracked", counters.size());
+        }
+    }
+
+    private static class Counter {
+        final AtomicInteger available;
+        // Last value written to the shows row; a fresh counter is always written once
+        volatile int flushed = Integer.MIN_VALUE;
+
+        Counter(int available) {
+            this.available = new AtomicInteger(available);
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.moviebooking.cache;
+
+import com.moviebooking.model.Seat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Resident seat map of one show
+ *
+ * The layout (rows, seat numbers, seat ids) never changes after a show is created,
+ * so it is stored once in flat primitive arrays ordered by row and seat number.
+ * Occupancy is a bitset (1 = not available) that readers use lock-free. The booking and
+ * cancellation paths change it together with an index of maximal free runs (consecutive
+ * free seats of one row with consecutive seat numbers), kept both by start and by length:
+ * a changed seat splits or merges runs in O(log n), and "every run of at least k seats"
+ * costs O(log n + runs returned) whatever the size of the hall. Every change bumps the
+ * version number.
+ */
+public class ShowSeatMap {
+
+    public static final String AVAILABLE = "Available";
+    public static final String BOOKED = "Booked";
+
+    private final int showId;
+    private final String[] rowLabels;
+    private final int[] rowStart;      // seats of row r are [rowStart[r], rowStart[r + 1])
+    private final int[] seatIds;
+    private final int[] seatNumbers;
+    private final int[] sortedIds;     // seat ids sorted ascending, for id -> index lookups
+    private final int[] sortedIndex;   // layout index of sortedIds[i]
+    private final boolean[] followsOn; // seat i is the next seat number after seat i - 1 in the same row
+
+    // Maximal free runs as [start, end) layout indices, guarded by freeRuns
+    private final TreeMap<Integer, Integer> freeRuns = new TreeMap<>();
+    private final TreeSet<Long> runsByLength = new TreeSet<>();   // length << 32 | start
+
+    private final AtomicLongArray occupied;
+    private final AtomicInteger bookedCount = new AtomicInteger();
+    private final AtomicLong version = new AtomicLong();
+    private final long loadedAt = System.currentTimeMillis();
+
+    /**
+     * Build from seats already ordered by seat_row, seat_number
+     */
+    public ShowSeatMap(int showId, List<Seat> orderedSeats) {
+        int n = orderedSeats.size();
+        this.showId = showId;
+        this.seatIds = new int[n];
+        this.seatNumbers = new int[n];
+        this.occupied = new AtomicLongArray((n + 63) >>> 6);
+
+        List<String> labels = new ArrayList<>();
+        int[] starts = new int[n + 1];
+        this.followsOn = new boolean[n];
+        String currentRow = null;
+
+        for (int i = 0; i < n; i++) {
+            Seat seat = orderedSeats.get(i);
+            if (currentRow == null || !currentRow.equals(seat.getSeatRow())) {
+                currentRow = seat.getSeatRow();
+                starts[labels.size()] = i;
+                labels.add(currentRow);
+            } else {
+                followsOn[i] = seat.getSeatNumber() == seatNumbers[i - 1] + 1;
+            }
+            seatIds[i] = seat.getSeatId();
+            seatNumbers[i] = seat.getSeatNumber();
+            if (!AVAILABLE.equals(seat.getStatus())) {
+                setBit(i);
+                bookedCount.incrementAndGet();
+            }
+        }
+        starts[labels.size()] = n;
+
+        this.rowLabels = labels.toArray(new String[0]);
+        this.rowStart = Arrays.copyOf(starts, rowLabels.length + 1);
+
+        // id -> layout index through a sorted copy, no boxed map needed
+        long[] packed = new long[n];
+        for (int i = 0; i < n; i++) {
+            packed[i] = ((long) seatIds[i] << 32) | i;
+        }
+        Arrays.sort(packed);
+        this.sortedIds = new int[n];
+        this.sortedIndex = new int[n];
+        for (int i = 0; i < n; i++) {
+            sortedIds[i] = (int) (packed[i] >> 32);
+            sortedIndex[i] = (int) packed[i];
+        }
+
+        int runStart = -1;
+        for (int i = 0; i <= n; i++) {
+            boolean free = i < n && isAvailable(i);
+            if (runStart >= 0 && (!free || !followsOn[i])) {
+                addRun(runStart, i);
+                runStart = -1;
+            }
+            if (free && runStart < 0) {
+                runStart = i;
+            }
+        }
+    }
+
+    public int getShowId() { return showId; }
+    public long getVersion() { return version.get(); }
+    public long getLoadedAt() { return loadedAt; }
+
+    public int getSeatCount() { return seatIds.length; }
+    public int getAvailableCount() { return seatIds.length - bookedCount.get(); }
+
+    public int getRowCount() { return rowLabels.length; }
+    public String getRowLabel(int row) { return rowLabels[row]; }
+    public int getRowStart(int row) { return rowStart[row]; }
+    public int getRowEnd(int row) { return rowStart[row + 1]; }
+
+    /**
+     * Row of a layout index
+     */
+    public int getRowOf(int index) {
+        int pos = Arrays.binarySearch(rowStart, 0, rowLabels.length, index);
+        if (pos >= 0) {
+            // Rows are never empty, so a matching start belongs to exactly one row
+            return pos;
+        }
+        return -pos - 2;
+    }
+
+    public int getSeatId(int index) { return seatIds[index]; }
+    public int getSeatNumber(int index) { return seatNumbers[index]; }
+
+    /**
+     * Printed label of a seat, e.g. "C7"
+     */
+    public String getSeatLabel(int index) {
+        return rowLabels[getRowOf(index)] + seatNumbers[index];
+    }
+
+    public boolean isAvailable(int index) {
+        return (occupied.get(index >>> 6) & (1L << index)) == 0;
+    }
+
+    /**
+     * Layout index of a seat id, or -1 if the seat does not belong to this show
+     */
+    public int indexOf(int seatId) {
+        int pos = Arrays.binarySearch(sortedIds, seatId);
+        return pos >= 0 ? sortedIndex[pos] : -1;
+    }
+
+    /**
+     * Maximal free runs of at least minLength seats as [start, end) layout index pairs, in layout order
+     * A run never crosses a row or a gap in the seat numbers.
+     */
+    public int[] getFreeRuns(int minLength) {
+        long[] found;
+        synchronized (freeRuns) {
+            // Keys are length << 32 | start, so everything from (minLength << 32) on is long enough
+            SortedSet<Long> longEnough = runsByLength.tailSet((long) Math.max(1, minLength) << 32);
+            found = new long[longEnough.size()];
+            int k = 0;
+            for (Long key : longEnough) {
+                // Re-pack as start << 32 | length to sort by position
+                found[k++] = (key << 32) | (key >>> 32);
+            }
+        }
+        Arrays.sort(found);
+        int[] runs = new int[found.length * 2];
+        for (int k = 0; k < found.length; k++) {
+            int start = (int) (found[k] >>> 32);
+            runs[2 * k] = start;
+            runs[2 * k + 1] = start + (int) found[k];
+        }
+        return runs;
+    }
+
+    /**
+     * Length of the longest free run, 0 if the show is sold out
+     */
+    public int getLongestFreeRun() {
+        synchronized (freeRuns) {
+            return runsByLength.isEmpty() ? 0 : (int) (runsByLength.last() >>> 32);
+        }
+    }
+
+    /**
+     * Mark seats as booked, returns how many actually changed state
+     */
+    public int markBooked(List<Integer> ids) {
+        int changed = 0;
+        synchronized (freeRuns) {
+            for (Integer id : ids) {
+                int index = indexOf(id);
+                if (index >= 0 && setBit(index)) {
+                    splitRun(index);
+                    changed++;
+                }
+            }
+        }
+        if (changed > 0) {
+            bookedCount.addAndGet(changed);
+            version.incrementAndGet();
+        }
+        return changed;
+    }
+
+    /**
+     * Mark seats as available again, returns how many actually changed state
+     */
+    public int markAvailable(List<Integer> ids) {
+        int changed = 0;
+        synchronized (freeRuns) {
+            for (Integer id : ids) {
+                int index = indexOf(id);
+                if (index >= 0 && clearBit(index)) {
+                    mergeRun(index);
+                    changed++;
+                }
+            }
+        }
+        if (changed > 0) {
+            bookedCount.addAndGet(-changed);
+            version.incrementAndGet();
+        }
+        return changed;
+    }
+
+    /**
+     * Materialize Seat objects for the JSP views (all seats, ordered by row and number)
+     */
+    public List<Seat> toSeats() {
+        List<Seat> seats = new ArrayList<>(seatIds.length);
+        for (int row = 0; row < rowLabels.length; row++) {
+            for (int i = rowStart[row]; i < rowStart[row + 1]; i++) {
+                seats.add(new Seat(seatIds[i], showId, rowLabels[row], seatNumbers[i],
+                        isAvailable(i) ? AVAILABLE : BOOKED));
+            }
+        }
+        return seats;
+    }
+
+    // Seat `index` was booked: the run holding it loses it and may fall apart in two
+    private void splitRun(int index) {
+        Map.Entry<Integer, Integer> run = freeRuns.floorEntry(index);
+        if (run == null || run.getValue() <= index) {
+            return;
+        }
+        int start = run.getKey();
+        int end = run.getValue();
+        removeRun(start, end);
+        if (start < index) addRun(start, index);
+        if (index + 1 < end) addRun(index + 1, end);
+    }
+
+    // Seat `index` was released: it joins the runs ending just before and starting just after it
+    private void mergeRun(int index) {
+        int start = index;
+        int end = index + 1;
+        if (followsOn[index]) {
+            Map.Entry<Integer, Integer> before = freeRuns.floorEntry(index - 1);
+            if (before != null && before.getValue() == index) {
+                start = before.getKey();
+                removeRun(start, index);
+            }
+        }
+        if (end < seatIds.length && followsOn[end]) {
+            Integer after = freeRuns.get(end);
+            if (after != null) {
+                removeRun(end, after);
+                end = after;
+            }
+        }
+        addRun(start, end);
+    }
+
+    private void addRun(int start, int end) {
+        freeRuns.put(start, end);
+        runsByLength.add(((long) (end - start) << 32) | start);
+    }
+
+    private void removeRun(int start, int end) {
+        freeRuns.remove(start);
+        runsByLength.remove(((long) (end - start) << 32) | start);
+    }
+
+    private boolean setBit(int index) {
+        int word = index >>> 6;
+        long mask = 1L << index;
+        while (true) {
+            long current = occupied.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (occupied.compareAndSet(word, current, current | mask)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean clearBit(int index) {
+        int word = index >>> 6;
+        long mask = 1L << index;
+        while (true) {
+            long current = occupied.get(word);
+            if ((current & mask) == 0) {
+                return false;
+            }
+            if (occupied.compareAndSet(word, current, current & ~mask)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package com.moviebooking.cache;
+
+import com.moviebooking.dao.WaitlistDAO;
+import com.moviebooking.model.Waitlist;
+import com.moviebooking.util.Log;
+import com.moviebooking.util.OrderStatisticTree;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resident waitlist queues, one per show
+ *
+ * Each queue holds the show's Waiting entries in an OrderStatisticTree ordered by priority
+ * score (highest first), then join time, then waitlist id, so a user's position and the
+ * queue length are O(log n) lookups and a promotion reads the first k entries in O(k).
+ * All queues are read from the waitlist table at start-up; a show that is not loaded
+ * (first use after an invalidation) is read on demand. Committed joins, promotions and
+ * bookings update the queue after their transaction; a user leaving the queue is applied
+ * in memory at once and written to the table by a background writer every WRITE_INTERVAL_MS.
+ */
+public class WaitlistQueues {
+
+    private static final Log log = Log.getLogger(WaitlistQueues.class);
+
+    private static final long WRITE_INTERVAL_MS = 1_000;
+
+    private static final Comparator<Entry> QUEUE_ORDER = Comparator
+            .comparingInt((Entry e) -> -e.priorityScore)
+            .thenComparingLong(e -> e.joinTime)
+            .thenComparingInt(e -> e.waitlistId);
+
+    private static final WaitlistQueues INSTANCE = new WaitlistQueues();
+
+    private final ConcurrentHashMap<Integer, ShowQueue> queues = new ConcurrentHashMap<>();
+    // waitlistId -> showId of every queued entry, for removals that only know the entry
+    private final ConcurrentHashMap<Integer, Integer> entryShows = new ConcurrentHashMap<>();
+    // Entries that left the queue but are still Waiting in the table until the writer runs
+    private final Set<Integer> pendingRemovals = ConcurrentHashMap.newKeySet();
+    private final WaitlistDAO waitlistDAO = new WaitlistDAO();
+    private final ShowLoads<ShowQueue> showLoads = new ShowLoads<>(queues,
+            id -> build(id, waitlistDAO.getWaitingEntries(id)), this::register);
+    private final ScheduledExecutorService writer;
+
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong writeFailures = new AtomicLong();
+
+    private WaitlistQueues() {
+        writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "waitlist-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        writer.scheduleWithFixedDelay(this::writeQuietly, WRITE_INTERVAL_MS, WRITE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public static WaitlistQueues getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Build the queues of every show with a waiting entry - called once before requests are served
+     */
+    public void loadAll() throws SQLException {
+        Map<Integer, List<Waitlist>> byShow = new HashMap<>();
+        for (Waitlist wl : waitlistDAO.getWaitingEntries()) {
+            byShow.computeIfAbsent(wl.getShowId(), id -> new ArrayList<>()).add(wl);
+        }
+        for (Map.Entry<Integer, List<Waitlist>> entry : byShow.entrySet()) {
+            ShowQueue queue = build(entry.getKey(), entry.getValue());
+            if (queues.putIfAbsent(entry.getKey(), queue) == null) {
+                register(queue);
+            }
+        }
+        log.info("waitlistQueues.loaded", "shows", byShow.size(), "entries", entryShows.size());
+    }
+
+    /**
+     * 1-based position of a user's waiting entry, -1 if the user is not waiting for the show
+     */
+    public int getPosition(int showId, int userId) throws SQLException {
+        ShowQueue queue = get(showId);
+        synchronized (queue) {
+            Entry entry = queue.byUser.get(userId);
+            return entry != null ? queue.tree.rank(entry) + 1 : -1;
+        }
+    }
+
+    /**
+     * 1-based position of a waiting entry, -1 if it is not in the show's queue
+     */
+    public int getEntryPosition(int showId, int waitlistId) throws SQLException {
+        ShowQueue queue = get(showId);
+        synchronized (queue) {
+            Entry entry = queue.byId.get(waitlistId);
+            return entry != null ? queue.tree.rank(entry) + 1 : -1;
+        }
+    }
+
+    public int getLength(int showId) throws SQLException {
+        ShowQueue queue = get(showId);
+        synchronized (queue) {
+            return queue.tree.size();
+        }
+    }
+
+    public boolean isWaiting(int showId, int userId) throws SQLException {
+        ShowQueue queue = get(showId);
+        synchronized (queue) {
+            return queue.byUser.containsKey(userId);
+        }
+    }
+
+    /**
+     * The waiting entries a promotion with availableSeats free seats would notify, in queue order
+     * Entries asking for more seats than are left are skipped, so later smaller ones can still be served.
+     */
+    public List<Entry> plan(int showId, int availableSeats) throws SQLException {
+        List<Entry> planned = new ArrayList<>();
+        int remaining = availableSeats;
+        ShowQueue queue = get(showId);
+        synchronized (queue) {
+            for (Entry entry : queue.tree) {
+                if (remaining <= 0) {
+                    break;
+                }
+                if (entry.requestedSeats <= remaining) {
+                    planned.add(entry);
+                    remaining -= entry.requestedSeats;
+                }
+            }
+        }
+        return planned;
+    }
+
+    /**
+     * Queue a committed join, ignored if the show is not loaded since its first load reads it anyway
+     */
+    public void add(Entry entry) {
+        showLoads.update(entry.showId, queue -> {
+            synchronized (queue) {
+                queue.add(entry);
+            }
+        });
+    }
+
+    /**
+     * Take a waiting entry out of its queue and mark it Fulfilled in the background
+     * Returns false if the entry is not queued (not waiting, or its show is not loaded).
+     */
+    public boolean leave(int waitlistId) {
+        Integer showId = entryShows.get(waitlistId);
+        if (showId == null) {
+            return false;
+        }
+        boolean[] removed = new boolean[1];
+        showLoads.update(showId, queue -> {
+            synchronized (queue) {
+                Entry entry = queue.byId.get(waitlistId);
+                if (entry != null) {
+                    // Pending before it leaves the queue, so a reload in between cannot bring it back
+                    pendingRemovals.add(waitlistId);
+                    removed[0] = queue.remove(entry);
+                }
+            }
+        });
+        return removed[0];
+    }
+
+    /**
+     * Drop entries whose status changed in a committed transaction (notified, expired)
+     */
+    public void removeAll(int showId, int[] waitlistIds) {
+        if (waitlistIds.length == 0) {
+            return;
+        }
+        showLoads.update(showId, queue -> {
+            synchronized (queue) {
+                for (int waitlistId : waitlistIds) {
+                    Entry entry = queue.byId.get(waitlistId);
+                    if (entry != null) {
+                        queue.remove(entry);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Drop a user's entry after a committed booking marked it Fulfilled
+     */
+    public void removeUser(int showId, int userId) {
+        showLoads.update(showId, queue -> {
+            synchronized (queue) {
+                Entry entry = queue.byUser.get(userId);
+                if (entry != null) {
+                    queue.remove(entry);
+                }
+            }
+        });
+    }
+
+    /**
+     * Forget a queue so that it is read again from the table (after changes made by triggers)
+     */
+    public void invalidate(int showId) {
+        showLoads.invalidate(showId);
+        ShowQueue queue = queues.remove(showId);
+        if (queue != null) {
+            synchronized (queue) {
+                for (Integer waitlistId : queue.byId.keySet()) {
+                    entryShows.remove(waitlistId, showId);
+                }
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        showLoads.invalidateAll();
+        for (Integer showId : queues.keySet()) {
+            invalidate(showId);
+        }
+    }
+
+    /**
+     * Write the entries that left their queue since the last run to the waitlist table
+     */
+    public void write() throws SQLException {
+        if (pendingRemovals.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = new ArrayList<>(pendingRemovals);
+        waitlistDAO.markFulfilled(ids);
+        // Only once committed, so that a load in between still skips them
+        pendingRemovals.removeAll(ids);
+        writes.incrementAndGet();
+        rowsWritten.addAndGet(ids.size());
+    }
+
+    public int getLoadedShows() { return queues.size(); }
+    public int getQueuedEntries() { return entryShows.size(); }
+    public int getPendingWrites() { return pendingRemovals.size(); }
+    public long getLoadCount() { return loads.get(); }
+    public long getWriteCount() { return writes.get(); }
+    public long getRowsWritten() { return rowsWritten.get(); }
+    public long getWriteFailures() { return writeFailures.get(); }
+
+    /**
+     * Stop the writer and write the last removals - called before the connection pool closes
+     */
+    public void shutdown() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(WRITE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeQuietly();
+    }
+
+    private ShowQueue get(int showId) throws SQLException {
+        ShowQueue queue = queues.get(showId);
+        if (queue != null) {
+            return queue;
+        }
+        return showLoads.get(showId);
+    }
+
+    private ShowQueue build(int showId, List<Waitlist> waiting) {
+        ShowQueue queue = new ShowQueue(showId);
+        for (Waitlist wl : waiting) {
+            if (!pendingRemovals.contains(wl.getWaitlistId())) {
+                queue.add(Entry.of(wl));
+            }
+        }
+        loads.incrementAndGet();
+        return queue;
+    }
+
+    /**
+     * Index a queue's entries by waitlist id as it is published, so a load that is never
+     * published leaves nothing behind in entryShows
+     */
+    private void register(ShowQueue queue) {
+        synchronized (queue) {
+            queue.published = true;
+            for (Integer waitlistId : queue.byId.keySet()) {
+                entryShows.put(waitlistId, queue.showId);
+            }
+        }
+    }
+
+    private void writeQuietly() {
+        try {
+            write();
+        } catch (SQLException | RuntimeException e) {
+            // Removals stay pending and are retried on the next run
+            writeFailures.incrementAndGet();
+            log.warn("waitlistQueues.write.failed", e, "pending", pendingRemovals.size());
+        }
+    }
+
+    /**
+     * One waiting entry; immutable, since its fields decide its place in the tree
+     */
+    public static final class Entry {
+        private final int waitlistId;
+        private final int userId;
+        private final int showId;
+        private final int requestedSeats;
+        private final int priorityScore;
+        private final long joinTime;
+
+        public Entry(int waitlistId, int userId, int showId, int requestedSeats, int priorityScore, long joinTime) {
+            this.waitlistId = waitlistId;
+            this.userId = userId;
+            this.showId = showId;
+            this.requestedSeats = requestedSeats;
+            this.priorityScore = priorityScore;
+            this.joinTime = joinTime;
+        }
+
+        public static Entry of(Waitlist wl) {
+            return new Entry(wl.getWaitlistId(), wl.getUserId(), wl.getShowId(), wl.getRequestedSeats(),
+                    wl.getPriorityScore(), wl.getJoinTime() != null ? wl.getJoinTime().getTime() : 0L);
+        }
+
+        public int getWaitlistId() { return waitlistId; }
+        public int getUserId() { return userId; }
+        public int getShowId() { return showId; }
+        public int getRequestedSeats() { return requestedSeats; }
+        public int getPriorityScore() { return priorityScore; }
+    }
+
+    private final class ShowQueue {
+        final int showId;
+        final OrderStatisticTree<Entry> tree = new OrderStatisticTree<>(QUEUE_ORDER);
+        final Map<Integer, Entry> byId = new HashMap<>();
+        final Map<Integer, Entry> byUser = new HashMap<>();
+        // Entries per user, above 1 only for the rare user waiting twice for the show
+        final Map<Integer, Integer> userEntries = new HashMap<>();
+        // Set once the queue is in the map; until then its entries are not in entryShows
+        boolean published;
+
+        ShowQueue(int showId) {
+            this.showId = showId;
+        }
+
+        void add(Entry entry) {
+            if (byId.containsKey(entry.waitlistId) || !tree.add(entry)) {
+                return;
+            }
+            byId.put(entry.waitlistId, entry);
+            userEntries.merge(entry.userId, 1, Integer::sum);
+            // A user normally waits once per show; if not, position lookups report the earlier entry
+            Entry current = byUser.get(entry.userId);
+            if (current == null || QUEUE_ORDER.compare(entry, current) < 0) {
+                byUser.put(entry.userId, entry);
+            }
+            if (published) {
+                entryShows.put(entry.waitlistId, showId);
+            }
+        }
+
+        boolean remove(Entry entry) {
+            if (!tree.remove(entry)) {
+                return false;
+            }
+            byId.remove(entry.waitlistId);
+            Integer left = userEntries.merge(entry.userId, -1, Integer::sum);
+            if (left == 0) {
+                userEntries.remove(entry.userId);
+                byUser.remove(entry.userId);
+            } else if (byUser.get(entry.userId) == entry) {
+                // Only a user with another entry for the show needs the scan for their next one
+                byUser.remove(entry.userId);
+                for (Entry other : byId.values()) {
+                    Entry current = byUser.get(other.userId);
+                    if (other.userId == entry.userId && (current == null || QUEUE_ORDER.compare(other, current) < 0)) {
+                        byUser.put(other.userId, other);
+                    }
+                }
+            }
+            if (published) {
+                entryShows.remove(entry.waitlistId, showId);
+            }
+            return true;
+        }
+    }
+}
@@ -1,17 +1,50 @@
 package com.moviebooking.dao;
 
+import com.moviebooking.cache.SeatMapCache;
+import com.moviebooking.cache.ShowSeatCounters;
+import com.moviebooking.cache.WaitlistQueues;
 import com.moviebooking.model.Booking;
+import com.moviebooking.model.BookingHistoryPage;
 import com.moviebooking.util.DBConnection;
+import com.moviebooking.util.Log;
+import com.moviebooking.util.Metrics;
 import java.sql.*;
 import java.util.*;
 
 public class BookingDAO {
 
+    private static final Log log = Log.getLogger(BookingDAO.class);
+
+    private static final Metrics.Timer CREATE_BOOKING_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "BookingDAO.createBooking");
+    private static final Metrics.Timer GET_USER_BOOKINGS_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "BookingDAO.getUserBookings");
+    private static final Metrics.Timer GET_USER_BOOKING_HISTORY_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "BookingDAO.getUserBookingHistory");
+    private static final Metrics.Timer GET_BOOKING_SEATS_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "BookingDAO.getBookingSeats");
+    private static final Metrics.Timer CANCEL_BOOKING_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "BookingDAO.cancelBooking");
+    private static final Metrics.Timer IS_SEAT_BOOKED_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "BookingDAO.isSeatBooked");
+
+    // Oracle rejects IN lists with more than 1000 expressions
+    private static final int MAX_IN_LIST = 1000;
+
+    private static final String HISTORY_SELECT =
+            "SELECT b.booking_id, b.booking_date, b.total_amount, b.payment_status, b.booking_status, " +
+            "m.title, m.genre, m.duration, " +
+            "TO_CHAR(s.show_date, 'DD Mon YYYY') || ' ' || s.show_time as show_time " +
+            "FROM bookings b " +
+            "JOIN shows s ON b.show_id = s.show_id " +
+            "JOIN movies m ON s.movie_id = m.movie_id ";
+
     /**
      * Create a new booking
      * Saves booking to database AND updates seat status
      */
     public int createBooking(int userId, int showId, double totalAmount) {
+        long start = System.nanoTime();
         Connection conn = null;
         PreparedStatement stmt = null;
         ResultSet rs = null;
@@ -37,15 +70,15 @@ public class BookingDAO {
 
                 if (rs.next()) {
                     bookingId = rs.getInt(1);
-                    System.out.println("✓ Booking created successfully in database with ID: " + bookingId);
+                    log.info("booking.created", "bookingId", bookingId, "userId", userId, "showId", showId);
                     return bookingId;
                 }
             }
 
         } catch (SQLException e) {
-            System.out.println("❌ Error creating booking: " + e.getMessage());
-            e.printStackTrace();
+            log.error("booking.create.failed", e, "userId", userId, "showId", showId);
         } finally {
+            CREATE_BOOKING_TIMER.recordSince(start);
             try {
                 if (rs != null) rs.close();
                 if (stmt != null) stmt.close();
@@ -60,32 +93,52 @@ public class BookingDAO {
 
     /**
      * Update show's available seats count
+     * Adjusts the live seat counter; the shows row is written back by its flusher
      */
     public boolean updateAvailableSeats(int showId, int seatsBooked) {
+        ShowSeatCounters.getInstance().add(showId, -seatsBooked);
+        log.debug("show.seats.updated", "showId", showId, "delta", -seatsBooked);
+        return true;
+    }
+
+    /**
+     * Get all bookings for a user
+     * Headers and seat labels are loaded with two set-based queries, not one query per booking
+     */
+    public List<Map<String, Object>> getUserBookings(int userId) {
+        long start = System.nanoTime();
+        List<Map<String, Object>> bookings = new ArrayList<>();
         Connection conn = null;
         PreparedStatement stmt = null;
+        ResultSet rs = null;
 
         try {
             conn = DBConnection.getConnection();
 
-            String sql = "UPDATE shows SET available_seats = available_seats - ? WHERE show_id = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, seatsBooked);
-            stmt.setInt(2, showId);
+            String sql = HISTORY_SELECT +
+                    "WHERE b.user_id = ? " +
+                    "ORDER BY b.booking_date DESC, b.booking_id DESC";
 
-            int rowsAffected = stmt.executeUpdate();
-            conn.commit();
+            stmt = conn.prepareStatement(sql);
+            stmt.setInt(1, userId);
+            rs = stmt.executeQuery();
 
-            if (rowsAffected > 0) {
-                System.out.println("✓ Available seats updated: -" + seatsBooked + " for show " + showId);
-                return true;
+            while (rs.next()) {
+                bookings.add(extractBookingRow(rs));
             }
+            rs.close();
+            stmt.close();
+
+            attachSeatLabels(conn, bookings);
+
+            log.debug("bookings.loaded", "userId", userId, "count", bookings.size());
 
         } catch (SQLException e) {
-            System.out.println("❌ Error updating available seats: " + e.getMessage());
-            e.printStackTrace();
+            log.error("bookings.load.failed", e, "userId", userId);
         } finally {
+            GET_USER_BOOKINGS_TIMER.recordSince(start);
             try {
+                if (rs != null) rs.close();
                 if (stmt != null) stmt.close();
                 if (conn != null) conn.close();
             } catch (SQLException e) {
@@ -93,59 +146,64 @@ public class BookingDAO {
             }
         }
 
-        return false;
+        return bookings;
     }
 
     /**
-     * Get all bookings for a user
+     * One page of a user's bookings, newest first
+     * Keyset pagination on (booking_date, booking_id): pass null beforeDate for the first page,
+     * then the page's nextBeforeDate / nextBeforeId for the following one.
      */
-    public List<Map<String, Object>> getUserBookings(int userId) {
+    public BookingHistoryPage getUserBookingHistory(int userId, Timestamp beforeDate, int beforeId, int pageSize) {
+        long start = System.nanoTime();
         List<Map<String, Object>> bookings = new ArrayList<>();
         Connection conn = null;
         PreparedStatement stmt = null;
         ResultSet rs = null;
+        boolean hasMore = false;
 
         try {
             conn = DBConnection.getConnection();
 
-            String sql = "SELECT b.booking_id, b.booking_date, b.total_amount, b.payment_status, b.booking_status, " +
-                    "m.title, m.genre, m.duration, " +
-                    "TO_CHAR(s.show_date, 'DD Mon YYYY') || ' ' || s.show_time as show_time " +
-                    "FROM bookings b " +
-                    "JOIN shows s ON b.show_id = s.show_id " +
-                    "JOIN movies m ON s.movie_id = m.movie_id " +
+            String sql = HISTORY_SELECT +
                     "WHERE b.user_id = ? " +
-                    "ORDER BY b.booking_date DESC";
+                    (beforeDate != null
+                            // booking_date is a DATE: bind the cursor as one too, so the predicate can seek the index
+                            ? "AND (b.booking_date < CAST(? AS DATE) OR (b.booking_date = CAST(? AS DATE) AND b.booking_id < ?)) "
+                            : "") +
+                    "ORDER BY b.booking_date DESC, b.booking_id DESC " +
+                    "FETCH FIRST ? ROWS ONLY";
 
             stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, userId);
+            int param = 1;
+            stmt.setInt(param++, userId);
+            if (beforeDate != null) {
+                stmt.setTimestamp(param++, beforeDate);
+                stmt.setTimestamp(param++, beforeDate);
+                stmt.setInt(param++, beforeId);
+            }
+            // One extra row tells us whether another page exists
+            stmt.setInt(param, pageSize + 1);
             rs = stmt.executeQuery();
 
             while (rs.next()) {
-                Map<String, Object> booking = new HashMap<>();
-                booking.put("bookingId", rs.getInt("booking_id"));
-                booking.put("bookingDate", rs.getTimestamp("booking_date"));
-                booking.put("totalAmount", rs.getDouble("total_amount"));
-                booking.put("paymentStatus", rs.getString("payment_status"));
-                booking.put("bookingStatus", rs.getString("booking_status"));
-                booking.put("movieTitle", rs.getString("title"));
-                booking.put("genre", rs.getString("genre"));
-                booking.put("duration", rs.getInt("duration"));
-                booking.put("showTime", rs.getString("show_time"));
-
-                // Get seats for this booking
-                List<String> seats = getBookingSeats(rs.getInt("booking_id"));
-                booking.put("seats", seats);
-
-                bookings.add(booking);
+                if (bookings.size() == pageSize) {
+                    hasMore = true;
+                    break;
+                }
+                bookings.add(extractBookingRow(rs));
             }
+            rs.close();
+            stmt.close();
+
+            attachSeatLabels(conn, bookings);
 
-            System.out.println("✓ Retrieved " + bookings.size() + " bookings for user " + userId);
+            log.debug("bookings.loaded", "userId", userId, "count", bookings.size());
 
         } catch (SQLException e) {
-            System.out.println("❌ Error getting user bookings: " + e.getMessage());
-            e.printStackTrace();
+            log.error("bookings.load.failed", e, "userId", userId);
         } finally {
+            GET_USER_BOOKING_HISTORY_TIMER.recordSince(start);
             try {
                 if (rs != null) rs.close();
                 if (stmt != null) stmt.close();
@@ -155,13 +213,77 @@ public class BookingDAO {
             }
         }
 
-        return bookings;
+        Timestamp nextBeforeDate = null;
+        int nextBeforeId = 0;
+        if (hasMore) {
+            Map<String, Object> last = bookings.get(bookings.size() - 1);
+            nextBeforeDate = (Timestamp) last.get("bookingDate");
+            nextBeforeId = (Integer) last.get("bookingId");
+        }
+        return new BookingHistoryPage(bookings, hasMore, nextBeforeDate, nextBeforeId);
+    }
+
+    private Map<String, Object> extractBookingRow(ResultSet rs) throws SQLException {
+        Map<String, Object> booking = new HashMap<>();
+        booking.put("bookingId", rs.getInt("booking_id"));
+        booking.put("bookingDate", rs.getTimestamp("booking_date"));
+        booking.put("totalAmount", rs.getDouble("total_amount"));
+        booking.put("paymentStatus", rs.getString("payment_status"));
+        booking.put("bookingStatus", rs.getString("booking_status"));
+        booking.put("movieTitle", rs.getString("title"));
+        booking.put("genre", rs.getString("genre"));
+        booking.put("duration", rs.getInt("duration"));
+        booking.put("showTime", rs.getString("show_time"));
+        booking.put("seats", new ArrayList<String>());
+        return booking;
+    }
+
+    /**
+     * Fill the "seats" list of every booking with one query per 1000 bookings
+     */
+    @SuppressWarnings("unchecked")
+    private void attachSeatLabels(Connection conn, List<Map<String, Object>> bookings) throws SQLException {
+        Map<Integer, List<String>> seatsByBooking = new HashMap<>();
+        for (Map<String, Object> booking : bookings) {
+            seatsByBooking.put((Integer) booking.get("bookingId"), (List<String>) booking.get("seats"));
+        }
+
+        List<Integer> bookingIds = new ArrayList<>(seatsByBooking.keySet());
+        for (int from = 0; from < bookingIds.size(); from += MAX_IN_LIST) {
+            List<Integer> chunk = bookingIds.subList(from, Math.min(from + MAX_IN_LIST, bookingIds.size()));
+
+            StringBuilder placeholders = new StringBuilder();
+            for (int i = 0; i < chunk.size(); i++) {
+                placeholders.append(i == 0 ? "?" : ",?");
+            }
+
+            String sql = "SELECT bd.booking_id, s.seat_row || s.seat_number as seat_label FROM booking_details bd " +
+                    "JOIN seats s ON s.seat_id = bd.seat_id " +
+                    "WHERE bd.booking_id IN (" + placeholders + ") " +
+                    "ORDER BY bd.booking_id, s.seat_row, s.seat_number";
+
+            PreparedStatement stmt = conn.prepareStatement(sql);
+            ResultSet rs = null;
+            try {
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setInt(i + 1, chunk.get(i));
+                }
+                rs = stmt.executeQuery();
+                while (rs.next()) {
+                    seatsByBooking.get(rs.getInt("booking_id")).add(rs.getString("seat_label"));
+                }
+            } finally {
+                if (rs != null) rs.close();
+                stmt.close();
+            }
+        }
     }
 
     /**
      * Get all seats booked for a specific booking
      */
     public List<String> getBookingSeats(int bookingId) {
+        long start = System.nanoTime();
         List<String> seats = new ArrayList<>();
         Connection conn = null;
         PreparedStatement stmt = null;
@@ -186,6 +308,7 @@ public class BookingDAO {
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
+            GET_BOOKING_SEATS_TIMER.recordSince(start);
             try {
                 if (rs != null) rs.close();
                 if (stmt != null) stmt.close();
@@ -202,6 +325,7 @@ public class BookingDAO {
      * Cancel a booking
      */
     public boolean cancelBooking(int bookingId, int userId) {
+        long start = System.nanoTime();
         Connection conn = null;
         PreparedStatement stmt = null;
 
@@ -227,11 +351,16 @@ public class BookingDAO {
                 // 3. Process waitlist
 
                 conn.commit();
-                System.out.println("✓ Booking " + bookingId + " cancelled successfully");
+                // Seats are released and the waitlist processed by a trigger we cannot see from here -
+                // drop the resident seat maps, seat counters and waitlist queues
+                SeatMapCache.getInstance().invalidateAll();
+                ShowSeatCounters.getInstance().invalidateAll();
+                WaitlistQueues.getInstance().invalidateAll();
+                log.info("booking.cancelled", "bookingId", bookingId);
                 return true;
             } else {
                 conn.rollback();
-                System.out.println("❌ Booking not found or already cancelled");
+                log.info("booking.cancel.rejected", "bookingId", bookingId, "reason", "notFoundOrCancelled");
                 return false;
             }
 
@@ -241,10 +370,10 @@ public class BookingDAO {
             } catch (SQLException ex) {
                 ex.printStackTrace();
             }
-            System.out.println("❌ Error cancelling booking: " + e.getMessage());
-            e.printStackTrace();
+            log.error("booking.cancel.failed", e, "bookingId", bookingId);
             return false;
         } finally {
+            CANCEL_BOOKING_TIMER.recordSince(start);
             try {
                 if (conn != null) {
                     conn.setAutoCommit(true);
@@ -261,6 +390,7 @@ public class BookingDAO {
      * Check if seat is already booked
      */
     public boolean isSeatBooked(int seatId) {
+        long start = System.nanoTime();
         Connection conn = null;
         PreparedStatement stmt = null;
         ResultSet rs = null;
@@ -280,6 +410,7 @@ public class BookingDAO {
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
+            IS_SEAT_BOOKED_TIMER.recordSince(start);
             try {
                 if (rs != null) rs.close();
                 if (stmt != null) stmt.close();
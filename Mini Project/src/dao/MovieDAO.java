@@ -1,14 +1,38 @@
 package com.moviebooking.dao;
 
+import com.moviebooking.cache.MovieCatalogCache;
+import com.moviebooking.cache.MovieSearchIndex;
 import com.moviebooking.model.Movie;
 import com.moviebooking.util.DBConnection;
+import com.moviebooking.util.Metrics;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
 
 public class MovieDAO {
 
+    private static final Metrics.Timer LOAD_ACTIVE_MOVIES_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "MovieDAO.loadActiveMovies");
+    private static final Metrics.Timer LOAD_MOVIE_BY_ID_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "MovieDAO.loadMovieById");
+
+    /**
+     * Active movies, served from the catalog cache
+     */
     public List<Movie> getAllMovies() {
+        try {
+            return MovieCatalogCache.getInstance().getActiveMovies();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Read the active movies from the database (cache loader)
+     */
+    public List<Movie> loadActiveMovies() throws SQLException {
+        long start = System.nanoTime();
         List<Movie> movies = new ArrayList<>();
         Connection conn = null;
         PreparedStatement stmt = null;
@@ -23,41 +47,43 @@ public class MovieDAO {
             while (rs.next()) {
                 movies.add(extractMovieFromResultSet(rs));
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         } finally {
+            LOAD_ACTIVE_MOVIES_TIMER.recordSince(start);
             closeResources(conn, stmt, rs);
         }
         return movies;
     }
 
+    /**
+     * Search active movies by title, genre or description words (prefix match)
+     * Answered from the in-memory search index, never scans the movies table
+     */
     public List<Movie> searchMovies(String keyword) {
-        List<Movie> movies = new ArrayList<>();
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-
         try {
-            conn = DBConnection.getConnection();
-            String sql = "SELECT * FROM movies WHERE status = 'Active' AND (LOWER(title) LIKE ? OR LOWER(genre) LIKE ?) ORDER BY title";
-            stmt = conn.prepareStatement(sql);
-            String searchPattern = "%" + keyword.toLowerCase() + "%";
-            stmt.setString(1, searchPattern);
-            stmt.setString(2, searchPattern);
-
-            rs = stmt.executeQuery();
-            while (rs.next()) {
-                movies.add(extractMovieFromResultSet(rs));
-            }
+            return MovieSearchIndex.getInstance().search(keyword);
         } catch (SQLException e) {
             e.printStackTrace();
-        } finally {
-            closeResources(conn, stmt, rs);
+            return new ArrayList<>();
         }
-        return movies;
     }
 
+    /**
+     * Movie by id, served from the catalog cache
+     */
     public Movie getMovieById(int movieId) {
+        try {
+            return MovieCatalogCache.getInstance().getMovie(movieId);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Read one movie from the database (cache loader)
+     */
+    public Movie loadMovieById(int movieId) throws SQLException {
+        long start = System.nanoTime();
         Connection conn = null;
         PreparedStatement stmt = null;
         ResultSet rs = null;
@@ -72,9 +98,8 @@ public class MovieDAO {
             if (rs.next()) {
                 return extractMovieFromResultSet(rs);
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         } finally {
+            LOAD_MOVIE_BY_ID_TIMER.recordSince(start);
             closeResources(conn, stmt, rs);
         }
         return null;
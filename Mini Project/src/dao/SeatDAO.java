@@ -1,14 +1,55 @@
 package com.moviebooking.dao;
 
+import com.moviebooking.cache.SeatMapCache;
+import com.moviebooking.cache.ShowSeatMap;
 import com.moviebooking.model.Seat;
 import com.moviebooking.util.DBConnection;
+import com.moviebooking.util.Log;
+import com.moviebooking.util.Metrics;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class SeatDAO {
 
+    private static final Log log = Log.getLogger(SeatDAO.class);
+
+    private static final Metrics.Timer LOAD_SEAT_MAP_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "SeatDAO.loadSeatMap");
+    private static final Metrics.Timer BOOK_SEATS_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "SeatDAO.bookSeats");
+    private static final Metrics.Timer GET_SEAT_BY_ID_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "SeatDAO.getSeatById");
+    private static final Metrics.Timer GET_SEAT_LABELS_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "SeatDAO.getSeatLabels");
+
+    // Oracle rejects IN lists with more than 1000 expressions
+    private static final int MAX_IN_LIST = 1000;
+
+    /**
+     * All seats of a show with their current status
+     * Served from the resident seat map - the database is only read the first time
+     */
     public List<Seat> getSeatsByShow(int showId) {
+        try {
+            ShowSeatMap seatMap = SeatMapCache.getInstance().get(showId);
+            if (seatMap != null) {
+                return seatMap.toSeats();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Load the layout and current occupancy of a show from the database
+     * Used by SeatMapCache - everything else should go through the cache
+     */
+    public ShowSeatMap loadSeatMap(int showId) throws SQLException {
+        long start = System.nanoTime();
         List<Seat> seats = new ArrayList<>();
         Connection conn = null;
         PreparedStatement stmt = null;
@@ -16,85 +57,86 @@ public class SeatDAO {
 
         try {
             conn = DBConnection.getConnection();
-            String sql = "SELECT * FROM seats WHERE show_id = ? ORDER BY seat_row, seat_number";
+            String sql = "SELECT seat_id, seat_row, seat_number, status FROM seats WHERE show_id = ? ORDER BY seat_row, seat_number";
             stmt = conn.prepareStatement(sql);
             stmt.setInt(1, showId);
 
             rs = stmt.executeQuery();
             while (rs.next()) {
-                Seat seat = new Seat();
-                seat.setSeatId(rs.getInt("seat_id"));
-                seat.setShowId(rs.getInt("show_id"));
-                seat.setSeatRow(rs.getString("seat_row"));
-                seat.setSeatNumber(rs.getInt("seat_number"));
-                seat.setStatus(rs.getString("status"));
-                seats.add(seat);
+                seats.add(new Seat(rs.getInt("seat_id"), showId, rs.getString("seat_row"),
+                        rs.getInt("seat_number"), rs.getString("status")));
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         } finally {
+            LOAD_SEAT_MAP_TIMER.recordSince(start);
             closeResources(conn, stmt, rs);
         }
-        return seats;
+        return new ShowSeatMap(showId, seats);
     }
 
     /**
      * Book multiple seats for a booking using EXISTING connection
      * This method MUST be called within an active transaction
      * Do NOT close the connection - that's the caller's responsibility
+     *
+     * All seats are claimed with one conditional UPDATE and all booking_details rows
+     * are written with one JDBC batch, so the row locks are held for O(1) round trips.
+     * Returns false (caller must roll back) unless every requested seat was Available;
+     * database errors are rethrown so the caller can tell a deadlock or lock timeout apart.
      */
-    public boolean bookSeats(List<Integer> seatIds, int bookingId, Connection existingConn) {
-        PreparedStatement updateSeat = null;
+    public boolean bookSeats(List<Integer> seatIds, int bookingId, Connection existingConn) throws SQLException {
+        long start = System.nanoTime();
+        PreparedStatement updateSeats = null;
         PreparedStatement insertDetail = null;
 
         try {
-            System.out.println("bookSeats: Booking " + seatIds.size() + " seats for booking ID: " + bookingId);
-
-            String updateSql = "UPDATE seats SET status = 'Booked' WHERE seat_id = ? AND status = 'Available'";
-            String insertSql = "INSERT INTO booking_details (booking_detail_id, booking_id, seat_id) VALUES (booking_detail_seq.NEXTVAL, ?, ?)";
+            // Step 1: Claim every seat in one statement (chunked only for very large IN lists)
+            int claimed = 0;
+            for (int from = 0; from < seatIds.size(); from += MAX_IN_LIST) {
+                List<Integer> chunk = seatIds.subList(from, Math.min(from + MAX_IN_LIST, seatIds.size()));
 
-            updateSeat = existingConn.prepareStatement(updateSql);
-            insertDetail = existingConn.prepareStatement(insertSql);
-
-            int successCount = 0;
-            for (Integer seatId : seatIds) {
-                System.out.println("  -> Attempting to book seat ID: " + seatId);
-
-                updateSeat.setInt(1, seatId);
-                int updated = updateSeat.executeUpdate();
-
-                if (updated == 0) {
-                    System.out.println("  ❌ Seat " + seatId + " is NOT available");
-                    return false;
+                String updateSql = "UPDATE seats SET status = 'Booked' WHERE status = 'Available' AND seat_id IN (" +
+                        placeholders(chunk.size()) + ")";
+                updateSeats = existingConn.prepareStatement(updateSql);
+                for (int i = 0; i < chunk.size(); i++) {
+                    updateSeats.setInt(i + 1, chunk.get(i));
                 }
+                claimed += updateSeats.executeUpdate();
+                updateSeats.close();
+                updateSeats = null;
+            }
 
-                System.out.println("  ✓ Seat " + seatId + " status updated to 'Booked'");
+            if (claimed != seatIds.size()) {
+                log.info("seats.unavailable", "bookingId", bookingId, "requested", seatIds.size(), "claimed", claimed);
+                return false;
+            }
 
+            // Step 2: Insert all booking details in one batch
+            String insertSql = "INSERT INTO booking_details (booking_detail_id, booking_id, seat_id) VALUES (booking_detail_seq.NEXTVAL, ?, ?)";
+            insertDetail = existingConn.prepareStatement(insertSql);
+            for (Integer seatId : seatIds) {
                 insertDetail.setInt(1, bookingId);
                 insertDetail.setInt(2, seatId);
-                int inserted = insertDetail.executeUpdate();
+                insertDetail.addBatch();
+            }
 
-                if (inserted == 0) {
-                    System.out.println("  ❌ Failed to insert booking detail for seat " + seatId);
+            int[] results = insertDetail.executeBatch();
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] == Statement.EXECUTE_FAILED || results[i] == 0) {
+                    log.warn("booking.detail.failed", "bookingId", bookingId, "seatId", seatIds.get(i));
                     return false;
                 }
-
-                System.out.println("  ✓ Booking detail inserted for seat " + seatId);
-                successCount++;
             }
 
-            System.out.println("✓ Successfully booked " + successCount + " out of " + seatIds.size() + " seats");
+            log.debug("seats.booked", "bookingId", bookingId, "seats", seatIds.size());
             return true;
 
         } catch (SQLException e) {
-            System.out.println("❌ SQL ERROR in bookSeats: " + e.getMessage());
-            System.out.println("   Error Code: " + e.getErrorCode());
-            System.out.println("   SQL State: " + e.getSQLState());
-            e.printStackTrace();
-            return false;
+            log.error("seats.book.failed", e, "bookingId", bookingId, "seats", seatIds.size());
+            throw e;
         } finally {
+            BOOK_SEATS_TIMER.recordSince(start);
             try {
-                if (updateSeat != null) updateSeat.close();
+                if (updateSeats != null) updateSeats.close();
                 if (insertDetail != null) insertDetail.close();
                 // DO NOT close existingConn - caller manages it
             } catch (SQLException e) {
@@ -128,6 +170,7 @@ public class SeatDAO {
      * Check seat status before booking
      */
     public Seat getSeatById(int seatId) {
+        long start = System.nanoTime();
         Connection conn = null;
         PreparedStatement stmt = null;
         ResultSet rs = null;
@@ -151,11 +194,63 @@ public class SeatDAO {
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
+            GET_SEAT_BY_ID_TIMER.recordSince(start);
             closeResources(conn, stmt, rs);
         }
         return null;
     }
 
+    /**
+     * Printed labels (e.g. "C7") of seats, in the order the ids were given
+     */
+    public List<String> getSeatLabels(List<Integer> seatIds) throws SQLException {
+        long start = System.nanoTime();
+        Map<Integer, String> labelById = new HashMap<>();
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = DBConnection.getConnection();
+            for (int from = 0; from < seatIds.size(); from += MAX_IN_LIST) {
+                List<Integer> chunk = seatIds.subList(from, Math.min(from + MAX_IN_LIST, seatIds.size()));
+                String sql = "SELECT seat_id, seat_row || seat_number as seat_label FROM seats WHERE seat_id IN (" +
+                        placeholders(chunk.size()) + ")";
+                stmt = conn.prepareStatement(sql);
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setInt(i + 1, chunk.get(i));
+                }
+                rs = stmt.executeQuery();
+                while (rs.next()) {
+                    labelById.put(rs.getInt("seat_id"), rs.getString("seat_label"));
+                }
+                rs.close();
+                stmt.close();
+            }
+        } finally {
+            GET_SEAT_LABELS_TIMER.recordSince(start);
+            closeResources(conn, stmt, rs);
+        }
+
+        List<String> labels = new ArrayList<>(seatIds.size());
+        for (Integer seatId : seatIds) {
+            String label = labelById.get(seatId);
+            if (label != null) {
+                labels.add(label);
+            }
+        }
+        return labels;
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(',');
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+
     private void closeResources(Connection conn, Statement stmt, ResultSet rs) {
         try {
             if (rs != null) rs.close();
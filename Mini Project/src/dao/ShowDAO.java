@@ -0,0 +1,220 @@
+package com.moviebooking.dao;
+
+import com.moviebooking.cache.ShowScheduleCache;
+import com.moviebooking.model.Show;
+import com.moviebooking.util.DBConnection;
+import com.moviebooking.util.Metrics;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ShowDAO {
+
+    private static final Metrics.Timer LOAD_SHOWS_BY_MOVIE_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "ShowDAO.loadShowsByMovie");
+    private static final Metrics.Timer LOAD_SHOWS_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "ShowDAO.loadShows");
+    private static final Metrics.Timer LOAD_AVAILABLE_SEATS_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "ShowDAO.loadAvailableSeats");
+    private static final Metrics.Timer UPDATE_AVAILABLE_SEATS_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "ShowDAO.updateAvailableSeats");
+
+    private static final int MAX_IN_LIST = 1000;
+
+    // Seat capacity comes from the seats of the show; available_seats is only the last flushed counter
+    private static final String SHOW_SELECT =
+            "SELECT s.show_id, s.movie_id, s.show_date, s.show_time, s.price, s.available_seats, " +
+            "TO_CHAR(s.show_date, 'DD Mon YYYY') || ' ' || s.show_time as full_time, " +
+            "(SELECT COUNT(*) FROM seats st WHERE st.show_id = s.show_id) as total_seats " +
+            "FROM shows s ";
+
+    /**
+     * Show by id, served from the schedule cache
+     */
+    public Show getShowById(int showId) {
+        try {
+            return ShowScheduleCache.getInstance().getShow(showId);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Several shows at once (missing ones are loaded with one query), keyed by show id
+     */
+    public Map<Integer, Show> getShows(Collection<Integer> showIds) {
+        try {
+            return ShowScheduleCache.getInstance().getShows(showIds);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return new HashMap<>();
+        }
+    }
+
+    /**
+     * All shows of a movie ordered by date and time, served from the schedule cache
+     */
+    public List<Show> getShowsByMovie(int movieId) {
+        try {
+            return ShowScheduleCache.getInstance().getSchedule(movieId);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Read the shows of a movie from the database (cache loader)
+     */
+    public List<Show> loadShowsByMovie(int movieId) throws SQLException {
+        long start = System.nanoTime();
+        List<Show> shows = new ArrayList<>();
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = DBConnection.getConnection();
+            String sql = SHOW_SELECT + "WHERE s.movie_id = ? ORDER BY s.show_date, s.show_time";
+            stmt = conn.prepareStatement(sql);
+            stmt.setInt(1, movieId);
+
+            rs = stmt.executeQuery();
+            while (rs.next()) {
+                shows.add(extractShowFromResultSet(rs));
+            }
+        } finally {
+            LOAD_SHOWS_BY_MOVIE_TIMER.recordSince(start);
+            closeResources(conn, stmt, rs);
+        }
+        return shows;
+    }
+
+    /**
+     * Read shows by id from the database (cache loader), chunked for very large id lists
+     */
+    public List<Show> loadShows(List<Integer> showIds) throws SQLException {
+        long start = System.nanoTime();
+        List<Show> shows = new ArrayList<>();
+        if (showIds.isEmpty()) {
+            return shows;
+        }
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = DBConnection.getConnection();
+            for (int from = 0; from < showIds.size(); from += MAX_IN_LIST) {
+                List<Integer> chunk = showIds.subList(from, Math.min(from + MAX_IN_LIST, showIds.size()));
+                String sql = SHOW_SELECT + "WHERE s.show_id IN (" + placeholders(chunk.size()) + ")";
+                stmt = conn.prepareStatement(sql);
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setInt(i + 1, chunk.get(i));
+                }
+
+                rs = stmt.executeQuery();
+                while (rs.next()) {
+                    shows.add(extractShowFromResultSet(rs));
+                }
+                rs.close();
+                stmt.close();
+            }
+        } finally {
+            LOAD_SHOWS_TIMER.recordSince(start);
+            closeResources(conn, stmt, rs);
+        }
+        return shows;
+    }
+
+    /**
+     * Seats a show can still sell, derived from the seats table (seeds the live counter)
+     * Free seats minus the seats held back for notified waitlist users - a reservation counts until
+     * WaitlistExpiryScheduler marks the entry Expired, which is also when the counter gets the seats back
+     */
+    public int loadAvailableSeats(int showId) throws SQLException {
+        long start = System.nanoTime();
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = DBConnection.getConnection();
+            String sql = "SELECT (SELECT COUNT(*) FROM seats WHERE show_id = ? AND status = 'Available') - " +
+                    "NVL((SELECT SUM(requested_seats) FROM waitlist WHERE show_id = ? AND status = 'Notified'), 0) " +
+                    "as available_seats FROM dual";
+            stmt = conn.prepareStatement(sql);
+            stmt.setInt(1, showId);
+            stmt.setInt(2, showId);
+
+            rs = stmt.executeQuery();
+            return rs.next() ? Math.max(0, rs.getInt("available_seats")) : 0;
+        } finally {
+            LOAD_AVAILABLE_SEATS_TIMER.recordSince(start);
+            closeResources(conn, stmt, rs);
+        }
+    }
+
+    /**
+     * Write live seat counters back to the shows table in one batch (write-behind flush)
+     */
+    public void updateAvailableSeats(Map<Integer, Integer> availableByShow) throws SQLException {
+        long start = System.nanoTime();
+        Connection conn = null;
+        PreparedStatement stmt = null;
+
+        try {
+            conn = DBConnection.getConnection();
+            conn.setAutoCommit(false);
+            stmt = conn.prepareStatement("UPDATE shows SET available_seats = ? WHERE show_id = ?");
+            for (Map.Entry<Integer, Integer> entry : availableByShow.entrySet()) {
+                stmt.setInt(1, entry.getValue());
+                stmt.setInt(2, entry.getKey());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            conn.commit();
+        } catch (SQLException e) {
+            if (conn != null) conn.rollback();
+            throw e;
+        } finally {
+            UPDATE_AVAILABLE_SEATS_TIMER.recordSince(start);
+            closeResources(conn, stmt, null);
+        }
+    }
+
+    private Show extractShowFromResultSet(ResultSet rs) throws SQLException {
+        return new Show(
+                rs.getInt("show_id"),
+                rs.getInt("movie_id"),
+                rs.getDate("show_date"),
+                rs.getString("show_time"),
+                rs.getString("full_time"),
+                rs.getDouble("price"),
+                rs.getInt("total_seats"),
+                rs.getInt("available_seats"));
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(',');
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+
+    private void closeResources(Connection conn, Statement stmt, ResultSet rs) {
+        try {
+            if (rs != null) rs.close();
+            if (stmt != null) stmt.close();
+            if (conn != null) conn.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
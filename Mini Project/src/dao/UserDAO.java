@@ -2,11 +2,20 @@ package com.moviebooking.dao;
 
 import com.moviebooking.model.User;
 import com.moviebooking.util.DBConnection;
+import com.moviebooking.util.Metrics;
 import java.sql.*;
 
 public class UserDAO {
 
+    private static final Metrics.Timer VALIDATE_USER_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "UserDAO.validateUser");
+    private static final Metrics.Timer REGISTER_USER_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "UserDAO.registerUser");
+    private static final Metrics.Timer GET_USER_BY_ID_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "UserDAO.getUserById");
+
     public User validateUser(String email, String password) {
+        long start = System.nanoTime();
         Connection conn = null;
         PreparedStatement stmt = null;
         ResultSet rs = null;
@@ -31,12 +40,14 @@ public class UserDAO {
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
+            VALIDATE_USER_TIMER.recordSince(start);
             closeResources(conn, stmt, rs);
         }
         return null;
     }
 
     public boolean registerUser(User user) {
+        long start = System.nanoTime();
         Connection conn = null;
         PreparedStatement stmt = null;
 
@@ -55,11 +66,13 @@ public class UserDAO {
             e.printStackTrace();
             return false;
         } finally {
+            REGISTER_USER_TIMER.recordSince(start);
             closeResources(conn, stmt, null);
         }
     }
 
     public User getUserById(int userId) {
+        long start = System.nanoTime();
         Connection conn = null;
         PreparedStatement stmt = null;
         ResultSet rs = null;
@@ -82,6 +95,7 @@ public class UserDAO {
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
+            GET_USER_BY_ID_TIMER.recordSince(start);
             closeResources(conn, stmt, rs);
         }
         return null;
@@ -1,7 +1,11 @@
 package com.moviebooking.dao;
 
+import com.moviebooking.cache.WaitlistQueues;
+import com.moviebooking.model.Movie;
 import com.moviebooking.model.Waitlist;
+import com.moviebooking.model.WaitlistEntryView;
 import com.moviebooking.util.DBConnection;
+import com.moviebooking.util.Metrics;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -9,12 +13,45 @@ import java.util.List;
 
 public class WaitlistDAO {
 
+    private static final Metrics.Timer ADD_TO_WAITLIST_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "WaitlistDAO.addToWaitlist");
+    private static final Metrics.Timer GET_WAITLIST_POSITION_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "WaitlistDAO.getWaitlistPosition");
+    private static final Metrics.Timer IS_USER_IN_WAITLIST_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "WaitlistDAO.isUserInWaitlist");
+    private static final Metrics.Timer GET_WAITLIST_BY_SHOW_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "WaitlistDAO.getWaitlistByShow");
+    private static final Metrics.Timer GET_USER_WAITLIST_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "WaitlistDAO.getUserWaitlist");
+    private static final Metrics.Timer GET_USER_WAITLIST_DASHBOARD_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "WaitlistDAO.getUserWaitlistDashboard");
+    private static final Metrics.Timer REMOVE_FROM_WAITLIST_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "WaitlistDAO.removeFromWaitlist");
+    private static final Metrics.Timer GET_NOTIFIED_WAITLIST_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "WaitlistDAO.getNotifiedWaitlist");
+    private static final Metrics.Timer GET_WAITLIST_COUNT_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "WaitlistDAO.getWaitlistCount");
+    private static final Metrics.Timer GET_PENDING_NOTIFICATIONS_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "WaitlistDAO.getPendingNotifications");
+    private static final Metrics.Timer GET_WAITING_ENTRIES_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "WaitlistDAO.getWaitingEntries");
+    private static final Metrics.Timer MARK_FULFILLED_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "WaitlistDAO.markFulfilled");
+    private static final Metrics.Timer CLEAN_EXPIRED_NOTIFICATIONS_TIMER =
+            Metrics.timer("dao_call_seconds", "DAO method latency", "method", "WaitlistDAO.cleanExpiredNotifications");
+
+    // Oracle rejects IN lists with more than 1000 expressions
+    private static final int MAX_IN_LIST = 1000;
+
     /**
-     * Add user to waitlist (FIFO Queue)
+     * Add user to waitlist (queued by priority, then join time)
      */
     public boolean addToWaitlist(int userId, int showId, int requestedSeats) {
+        long start = System.nanoTime();
         Connection conn = null;
         CallableStatement stmt = null;
+        PreparedStatement queryStmt = null;
+        ResultSet rs = null;
 
         try {
             conn = DBConnection.getConnection();
@@ -30,41 +67,45 @@ public class WaitlistDAO {
             stmt.execute();
 
             int waitlistId = stmt.getInt(4);
-            return waitlistId > 0;
+            if (waitlistId <= 0) {
+                return false;
+            }
+
+            // Join time and priority are set by the procedure - read them back to queue the entry
+            queryStmt = conn.prepareStatement(
+                    "SELECT join_time, priority_score FROM waitlist WHERE waitlist_id = ? AND status = 'Waiting'");
+            queryStmt.setInt(1, waitlistId);
+            rs = queryStmt.executeQuery();
+            if (rs.next()) {
+                Timestamp joinTime = rs.getTimestamp("join_time");
+                WaitlistQueues.getInstance().add(new WaitlistQueues.Entry(waitlistId, userId, showId, requestedSeats,
+                        rs.getInt("priority_score"), joinTime != null ? joinTime.getTime() : 0L));
+            }
+            return true;
 
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
         } finally {
+            ADD_TO_WAITLIST_TIMER.recordSince(start);
+            closeResources(null, queryStmt, rs);
             closeResources(conn, stmt, null);
         }
     }
 
     /**
-     * Get user's position in waitlist queue
+     * Get user's position in waitlist queue (1-based, -1 if not waiting)
+     * Served from the resident queue - priority first, then join time
      */
     public int getWaitlistPosition(int userId, int showId) {
-        Connection conn = null;
-        CallableStatement stmt = null;
-
+        long start = System.nanoTime();
         try {
-            conn = DBConnection.getConnection();
-
-            String sql = "{? = call get_waitlist_position(?, ?)}";
-            stmt = conn.prepareCall(sql);
-            stmt.registerOutParameter(1, Types.INTEGER);
-            stmt.setInt(2, userId);
-            stmt.setInt(3, showId);
-
-            stmt.execute();
-
-            return stmt.getInt(1);
-
+            return WaitlistQueues.getInstance().getPosition(showId, userId);
         } catch (SQLException e) {
             e.printStackTrace();
             return -1;
         } finally {
-            closeResources(conn, stmt, null);
+            GET_WAITLIST_POSITION_TIMER.recordSince(start);
         }
     }
 
@@ -72,6 +113,23 @@ public class WaitlistDAO {
      * Check if user is in waitlist for a show
      */
     public boolean isUserInWaitlist(int userId, int showId) {
+        long start = System.nanoTime();
+        try {
+            return WaitlistQueues.getInstance().isWaiting(showId, userId);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            IS_USER_IN_WAITLIST_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Get all waitlist entries for a show (ordered by queue position)
+     */
+    public List<Waitlist> getWaitlistByShow(int showId) {
+        long start = System.nanoTime();
+        List<Waitlist> waitlist = new ArrayList<>();
         Connection conn = null;
         PreparedStatement stmt = null;
         ResultSet rs = null;
@@ -79,28 +137,41 @@ public class WaitlistDAO {
         try {
             conn = DBConnection.getConnection();
 
-            String sql = "SELECT COUNT(*) FROM waitlist WHERE user_id = ? AND show_id = ? AND status = 'Waiting'";
+            String sql = "SELECT * FROM waitlist WHERE show_id = ? AND status = 'Waiting' " +
+                    "ORDER BY priority_score DESC, join_time ASC, waitlist_id ASC";
             stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, userId);
-            stmt.setInt(2, showId);
+            stmt.setInt(1, showId);
 
             rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getInt(1) > 0;
+            while (rs.next()) {
+                Waitlist wl = new Waitlist();
+                wl.setWaitlistId(rs.getInt("waitlist_id"));
+                wl.setUserId(rs.getInt("user_id"));
+                wl.setShowId(rs.getInt("show_id"));
+                wl.setRequestedSeats(rs.getInt("requested_seats"));
+                wl.setJoinTime(rs.getTimestamp("join_time"));
+                wl.setStatus(rs.getString("status"));
+                wl.setPriorityScore(rs.getInt("priority_score"));
+                wl.setNotificationSent(rs.getString("notification_sent"));
+                wl.setExpiryTime(rs.getTimestamp("expiry_time"));
+
+                waitlist.add(wl);
             }
 
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
+            GET_WAITLIST_BY_SHOW_TIMER.recordSince(start);
             closeResources(conn, stmt, rs);
         }
-        return false;
+        return waitlist;
     }
 
     /**
-     * Get all waitlist entries for a show (ordered by queue position)
+     * Get user's waitlist entries
      */
-    public List<Waitlist> getWaitlistByShow(int showId) {
+    public List<Waitlist> getUserWaitlist(int userId) {
+        long start = System.nanoTime();
         List<Waitlist> waitlist = new ArrayList<>();
         Connection conn = null;
         PreparedStatement stmt = null;
@@ -109,9 +180,9 @@ public class WaitlistDAO {
         try {
             conn = DBConnection.getConnection();
 
-            String sql = "SELECT * FROM waitlist WHERE show_id = ? AND status = 'Waiting' ORDER BY join_time ASC";
+            String sql = "SELECT * FROM waitlist WHERE user_id = ? AND status IN ('Waiting', 'Notified') ORDER BY join_time DESC";
             stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, showId);
+            stmt.setInt(1, userId);
 
             rs = stmt.executeQuery();
             while (rs.next()) {
@@ -132,16 +203,22 @@ public class WaitlistDAO {
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
+            GET_USER_WAITLIST_TIMER.recordSince(start);
             closeResources(conn, stmt, rs);
         }
         return waitlist;
     }
 
     /**
-     * Get user's waitlist entries
+     * Load everything the waitlist page shows for a user in one query
+     * Movie and show time come from joins; queue position and queue length are
+     * O(log n) lookups in the resident queues instead of a ranking over the table.
      */
-    public List<Waitlist> getUserWaitlist(int userId) {
-        List<Waitlist> waitlist = new ArrayList<>();
+    public List<WaitlistEntryView> getUserWaitlistDashboard(int userId) {
+        long start = System.nanoTime();
+        List<Waitlist> rows = new ArrayList<>();
+        List<Movie> movies = new ArrayList<>();
+        List<String> showTimes = new ArrayList<>();
         Connection conn = null;
         PreparedStatement stmt = null;
         ResultSet rs = null;
@@ -149,7 +226,13 @@ public class WaitlistDAO {
         try {
             conn = DBConnection.getConnection();
 
-            String sql = "SELECT * FROM waitlist WHERE user_id = ? AND status IN ('Waiting', 'Notified') ORDER BY join_time DESC";
+            String sql = "SELECT w.*, m.movie_id, m.title, m.genre, m.duration, " +
+                    "TO_CHAR(s.show_date, 'DD Mon YYYY') || ' ' || s.show_time AS full_time " +
+                    "FROM waitlist w " +
+                    "JOIN shows s ON w.show_id = s.show_id " +
+                    "JOIN movies m ON s.movie_id = m.movie_id " +
+                    "WHERE w.user_id = ? AND w.status IN ('Waiting', 'Notified') " +
+                    "ORDER BY w.join_time DESC";
             stmt = conn.prepareStatement(sql);
             stmt.setInt(1, userId);
 
@@ -166,7 +249,15 @@ public class WaitlistDAO {
                 wl.setNotificationSent(rs.getString("notification_sent"));
                 wl.setExpiryTime(rs.getTimestamp("expiry_time"));
 
-                waitlist.add(wl);
+                Movie movie = new Movie();
+                movie.setMovieId(rs.getInt("movie_id"));
+                movie.setTitle(rs.getString("title"));
+                movie.setGenre(rs.getString("genre"));
+                movie.setDuration(rs.getInt("duration"));
+
+                rows.add(wl);
+                movies.add(movie);
+                showTimes.add(rs.getString("full_time"));
             }
 
         } catch (SQLException e) {
@@ -174,17 +265,52 @@ public class WaitlistDAO {
         } finally {
             closeResources(conn, stmt, rs);
         }
-        return waitlist;
+
+        // Positions after the connection is back: a queue that still has to load borrows its own
+        WaitlistQueues queues = WaitlistQueues.getInstance();
+        List<WaitlistEntryView> entries = new ArrayList<>(rows.size());
+        try {
+            for (int i = 0; i < rows.size(); i++) {
+                Waitlist wl = rows.get(i);
+
+                // Notified entries have left the queue (position 0), anything else not ranked is -1
+                int position;
+                if ("Notified".equals(wl.getStatus())) {
+                    position = 0;
+                } else {
+                    position = queues.getEntryPosition(wl.getShowId(), wl.getWaitlistId());
+                    if (position < 0) {
+                        // Left the queue, the waitlist writer has not caught up yet
+                        continue;
+                    }
+                }
+
+                entries.add(new WaitlistEntryView(wl, movies.get(i), showTimes.get(i),
+                        position, queues.getLength(wl.getShowId())));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            GET_USER_WAITLIST_DASHBOARD_TIMER.recordSince(start);
+        }
+        return entries;
     }
 
     /**
      * Remove user from waitlist (when they book or cancel)
+     * A queued entry leaves its queue at once and is written by the waitlist writer;
+     * anything else (a notified entry, an unloaded show) is updated here.
      */
     public boolean removeFromWaitlist(int waitlistId) {
+        long start = System.nanoTime();
         Connection conn = null;
         PreparedStatement stmt = null;
 
         try {
+            if (WaitlistQueues.getInstance().leave(waitlistId)) {
+                return true;
+            }
+
             conn = DBConnection.getConnection();
 
             String sql = "UPDATE waitlist SET status = 'Fulfilled' WHERE waitlist_id = ?";
@@ -198,6 +324,7 @@ public class WaitlistDAO {
             e.printStackTrace();
             return false;
         } finally {
+            REMOVE_FROM_WAITLIST_TIMER.recordSince(start);
             closeResources(conn, stmt, null);
         }
     }
@@ -206,6 +333,7 @@ public class WaitlistDAO {
      * Check for notified users (users who can now book)
      */
     public Waitlist getNotifiedWaitlist(int userId, int showId) {
+        long start = System.nanoTime();
         Connection conn = null;
         PreparedStatement stmt = null;
         ResultSet rs = null;
@@ -235,6 +363,7 @@ public class WaitlistDAO {
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
+            GET_NOTIFIED_WAITLIST_TIMER.recordSince(start);
             closeResources(conn, stmt, rs);
         }
         return null;
@@ -244,6 +373,25 @@ public class WaitlistDAO {
      * Get waitlist count for a show
      */
     public int getWaitlistCount(int showId) {
+        long start = System.nanoTime();
+        try {
+            return WaitlistQueues.getInstance().getLength(showId);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return 0;
+        } finally {
+            GET_WAITLIST_COUNT_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * All notified entries still holding seats, with their expiry time on this JVM's clock
+     * (now plus the time the database clock says is left, so zone or clock skew does not matter)
+     * Read once at start-up so WaitlistExpiryScheduler tracks reservations made before it ran
+     */
+    public List<Waitlist> getPendingNotifications() throws SQLException {
+        long start = System.nanoTime();
+        List<Waitlist> pending = new ArrayList<>();
         Connection conn = null;
         PreparedStatement stmt = null;
         ResultSet rs = null;
@@ -251,27 +399,131 @@ public class WaitlistDAO {
         try {
             conn = DBConnection.getConnection();
 
-            String sql = "SELECT COUNT(*) FROM waitlist WHERE show_id = ? AND status = 'Waiting'";
+            String sql = "SELECT waitlist_id, show_id, requested_seats, " +
+                    "NVL((expiry_time - SYSDATE) * 86400, 0) AS remaining_seconds FROM waitlist WHERE status = 'Notified'";
             stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, showId);
+            stmt.setFetchSize(500);
 
             rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getInt(1);
+            long now = System.currentTimeMillis();
+            while (rs.next()) {
+                Waitlist wl = new Waitlist();
+                wl.setWaitlistId(rs.getInt("waitlist_id"));
+                wl.setShowId(rs.getInt("show_id"));
+                wl.setRequestedSeats(rs.getInt("requested_seats"));
+                wl.setStatus("Notified");
+                long remainingMs = (long) Math.ceil(rs.getDouble("remaining_seconds") * 1000);
+                wl.setExpiryTime(new Timestamp(now + remainingMs));
+
+                pending.add(wl);
             }
+        } finally {
+            GET_PENDING_NOTIFICATIONS_TIMER.recordSince(start);
+            closeResources(conn, stmt, rs);
+        }
+        return pending;
+    }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
+    /**
+     * Waiting entries of every show, read once at start-up to build the resident queues
+     */
+    public List<Waitlist> getWaitingEntries() throws SQLException {
+        return loadWaitingEntries(null);
+    }
+
+    /**
+     * Waiting entries of one show, read when its resident queue is (re)built
+     */
+    public List<Waitlist> getWaitingEntries(int showId) throws SQLException {
+        return loadWaitingEntries(showId);
+    }
+
+    private List<Waitlist> loadWaitingEntries(Integer showId) throws SQLException {
+        long start = System.nanoTime();
+        List<Waitlist> waiting = new ArrayList<>();
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = DBConnection.getConnection();
+
+            String sql = "SELECT waitlist_id, user_id, show_id, requested_seats, join_time, priority_score " +
+                    "FROM waitlist WHERE status = 'Waiting'" + (showId != null ? " AND show_id = ?" : "");
+            stmt = conn.prepareStatement(sql);
+            if (showId != null) {
+                stmt.setInt(1, showId);
+            }
+            stmt.setFetchSize(500);
+
+            rs = stmt.executeQuery();
+            while (rs.next()) {
+                Waitlist wl = new Waitlist();
+                wl.setWaitlistId(rs.getInt("waitlist_id"));
+                wl.setUserId(rs.getInt("user_id"));
+                wl.setShowId(rs.getInt("show_id"));
+                wl.setRequestedSeats(rs.getInt("requested_seats"));
+                wl.setJoinTime(rs.getTimestamp("join_time"));
+                wl.setPriorityScore(rs.getInt("priority_score"));
+                wl.setStatus("Waiting");
+
+                waiting.add(wl);
+            }
         } finally {
+            GET_WAITING_ENTRIES_TIMER.recordSince(start);
             closeResources(conn, stmt, rs);
         }
-        return 0;
+        return waiting;
+    }
+
+    /**
+     * Mark entries that left their queue as Fulfilled, in one transaction
+     * Entries whose status has moved on meanwhile are left alone.
+     */
+    public void markFulfilled(List<Integer> waitlistIds) throws SQLException {
+        long start = System.nanoTime();
+        Connection conn = null;
+        PreparedStatement stmt = null;
+
+        try {
+            conn = DBConnection.getConnection();
+            conn.setAutoCommit(false);
+
+            for (int from = 0; from < waitlistIds.size(); from += MAX_IN_LIST) {
+                List<Integer> chunk = waitlistIds.subList(from, Math.min(from + MAX_IN_LIST, waitlistIds.size()));
+                String sql = "UPDATE waitlist SET status = 'Fulfilled' WHERE status = 'Waiting' AND waitlist_id IN (" +
+                        placeholders(chunk.size()) + ")";
+                stmt = conn.prepareStatement(sql);
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setInt(i + 1, chunk.get(i));
+                }
+                stmt.executeUpdate();
+                stmt.close();
+                stmt = null;
+            }
+            conn.commit();
+
+        } catch (SQLException e) {
+            if (conn != null) conn.rollback();
+            throw e;
+        } finally {
+            MARK_FULFILLED_TIMER.recordSince(start);
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+            closeResources(conn, stmt, null);
+        }
     }
 
     /**
      * Clean expired notifications
      */
     public void cleanExpiredNotifications() {
+        long start = System.nanoTime();
         Connection conn = null;
         CallableStatement stmt = null;
 
@@ -285,10 +537,20 @@ public class WaitlistDAO {
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
+            CLEAN_EXPIRED_NOTIFICATIONS_TIMER.recordSince(start);
             closeResources(conn, stmt, null);
         }
     }
 
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(',');
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+
     // Helper method to close resources
     private void closeResources(Connection conn, Statement stmt, ResultSet rs) {
         try {
@@ -0,0 +1,40 @@
+package com.moviebooking.model;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of a user's booking history (newest first)
+ * The next page starts after (nextBeforeDate, nextBeforeId) - keyset pagination
+ */
+public class BookingHistoryPage {
+    private List<Map<String, Object>> bookings;
+    private boolean hasMore;
+    private Timestamp nextBeforeDate;
+    private int nextBeforeId;
+
+    // Constructors
+    public BookingHistoryPage() {}
+
+    public BookingHistoryPage(List<Map<String, Object>> bookings, boolean hasMore,
+                              Timestamp nextBeforeDate, int nextBeforeId) {
+        this.bookings = bookings;
+        this.hasMore = hasMore;
+        this.nextBeforeDate = nextBeforeDate;
+        this.nextBeforeId = nextBeforeId;
+    }
+
+    // Getters and Setters
+    public List<Map<String, Object>> getBookings() { return bookings; }
+    public void setBookings(List<Map<String, Object>> bookings) { this.bookings = bookings; }
+
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+
+    public Timestamp getNextBeforeDate() { return nextBeforeDate; }
+    public void setNextBeforeDate(Timestamp nextBeforeDate) { this.nextBeforeDate = nextBeforeDate; }
+
+    public int getNextBeforeId() { return nextBeforeId; }
+    public void setNextBeforeId(int nextBeforeId) { this.nextBeforeId = nextBeforeId; }
+}
@@ -0,0 +1,58 @@
+package com.moviebooking.model;
+
+import java.sql.Date;
+
+/**
+ * A screening of a movie
+ * availableSeats is the shows column as loaded; the live count is kept by ShowSeatCounters
+ */
+public class Show {
+    private int showId;
+    private int movieId;
+    private Date showDate;
+    private String showTime;
+    private String fullTime;       // 'DD Mon YYYY HH:MI' as shown on pages and tickets
+    private double price;
+    private int totalSeats;
+    private int availableSeats;
+
+    // Constructors
+    public Show() {}
+
+    public Show(int showId, int movieId, Date showDate, String showTime, String fullTime,
+                double price, int totalSeats, int availableSeats) {
+        this.showId = showId;
+        this.movieId = movieId;
+        this.showDate = showDate;
+        this.showTime = showTime;
+        this.fullTime = fullTime;
+        this.price = price;
+        this.totalSeats = totalSeats;
+        this.availableSeats = availableSeats;
+    }
+
+    // Getters and Setters
+    public int getShowId() { return showId; }
+    public void setShowId(int showId) { this.showId = showId; }
+
+    public int getMovieId() { return movieId; }
+    public void setMovieId(int movieId) { this.movieId = movieId; }
+
+    public Date getShowDate() { return showDate; }
+    public void setShowDate(Date showDate) { this.showDate = showDate; }
+
+    public String getShowTime() { return showTime; }
+    public void setShowTime(String showTime) { this.showTime = showTime; }
+
+    public String getFullTime() { return fullTime; }
+    public void setFullTime(String fullTime) { this.fullTime = fullTime; }
+
+    public double getPrice() { return price; }
+    public void setPrice(double price) { this.price = price; }
+
+    public int getTotalSeats() { return totalSeats; }
+    public void setTotalSeats(int totalSeats) { this.totalSeats = totalSeats; }
+
+    public int getAvailableSeats() { return availableSeats; }
+    public void setAvailableSeats(int availableSeats) { this.availableSeats = availableSeats; }
+}
@@ -0,0 +1,52 @@
+package com.moviebooking.model;
+
+/**
+ * One row of the waitlist page: the entry plus its movie, show time and queue state
+ * Position 0 means notified (seats available), -1 means not in the queue, 1+ means waiting
+ */
+public class WaitlistEntryView {
+    private Waitlist waitlist;
+    private Movie movie;
+    private String showTime;
+    private int position;
+    private int waitlistCount;
+
+    // Constructors
+    public WaitlistEntryView() {}
+
+    public WaitlistEntryView(Waitlist waitlist, Movie movie, String showTime, int position, int waitlistCount) {
+        this.waitlist = waitlist;
+        this.movie = movie;
+        this.showTime = showTime;
+        this.position = position;
+        this.waitlistCount = waitlistCount;
+    }
+
+    // Getters and Setters
+    public Waitlist getWaitlist() { return waitlist; }
+    public void setWaitlist(Waitlist waitlist) { this.waitlist = waitlist; }
+
+    public Movie getMovie() { return movie; }
+    public void setMovie(Movie movie) { this.movie = movie; }
+
+    public String getShowTime() { return showTime; }
+    public void setShowTime(String showTime) { this.showTime = showTime; }
+
+    public int getPosition() { return position; }
+    public void setPosition(int position) { this.position = position; }
+
+    public int getWaitlistCount() { return waitlistCount; }
+    public void setWaitlistCount(int waitlistCount) { this.waitlistCount = waitlistCount; }
+
+    /**
+     * Display message based on position
+     */
+    public String getPositionMessage() {
+        if (position == 0 && waitlist != null && "Notified".equals(waitlist.getStatus())) {
+            return "Seats Available!";
+        } else if (position > 0) {
+            return "Position #" + position;
+        }
+        return "N/A";
+    }
+}
@@ -0,0 +1,51 @@
+package com.moviebooking.search;
+
+import java.util.Arrays;
+
+/**
+ * One scored seat arrangement: layout indices into the show's seat map, sorted ascending
+ */
+public final class Candidate {
+
+    private final String type;
+    private final int[] indices;
+    private final double score;
+
+    Candidate(String type, int[] indices, double score) {
+        this.type = type;
+        this.indices = indices;
+        this.score = score;
+    }
+
+    public String getType() { return type; }
+    public int[] getIndices() { return indices.clone(); }
+    public int size() { return indices.length; }
+    public int getIndex(int i) { return indices[i]; }
+    public double getScore() { return score; }
+
+    /**
+     * Number of seats this arrangement has in common with another (both sorted, so one merge pass)
+     */
+    int sharedSeats(Candidate other) {
+        int shared = 0;
+        int i = 0;
+        int j = 0;
+        while (i < indices.length && j < other.indices.length) {
+            if (indices[i] < other.indices[j]) {
+                i++;
+            } else if (indices[i] > other.indices[j]) {
+                j++;
+            } else {
+                shared++;
+                i++;
+                j++;
+            }
+        }
+        return shared;
+    }
+
+    @Override
+    public String toString() {
+        return type + Arrays.toString(indices) + " score=" + score;
+    }
+}
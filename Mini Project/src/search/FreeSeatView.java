@@ -0,0 +1,158 @@
+package com.moviebooking.search;
+
+import com.moviebooking.cache.ShowSeatMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Snapshot of the free seats of a show as primitive arrays, shared by all strategies of one search
+ *
+ * Positions 0..count-1 are the free seats in row order then seat-number order; rows without
+ * any free seat are skipped. Occupancy is copied once, so every strategy and the scoring
+ * model see the same hall even while bookings change the live seat map. Runs of consecutive
+ * free seats come from the seat map's free-run index and are trimmed to this snapshot.
+ */
+public final class FreeSeatView {
+
+    private final ShowSeatMap map;
+    private final boolean[] free;      // layout index -> free at snapshot time
+    private final int[] layoutIndex;   // position -> layout index in the seat map
+    private final int[] positionOf;    // layout index -> position (free seats only)
+    private final int[] rowBegin;      // free row r covers positions [rowBegin[r], rowBegin[r + 1])
+    private final int[] layoutRow;     // free row r -> row index in the seat map
+    private final int[] rowOfIndex;    // layout index -> row index in the seat map
+    private final int count;
+    private final int rowCount;
+
+    public FreeSeatView(ShowSeatMap map) {
+        this(map, Collections.<Integer>emptySet());
+    }
+
+    /**
+     * Snapshot in which the given seats (e.g. held by other users while they pay) count as taken
+     */
+    public FreeSeatView(ShowSeatMap map, Set<Integer> takenSeatIds) {
+        this.map = map;
+        int seats = map.getSeatCount();
+        int rows = map.getRowCount();
+        boolean[] taken = new boolean[seats];
+        for (Integer seatId : takenSeatIds) {
+            int index = map.indexOf(seatId);
+            if (index >= 0) {
+                taken[index] = true;
+            }
+        }
+        boolean[] snapshot = new boolean[seats];
+        int[] rowOf = new int[seats];
+        int[] positions = new int[seats];
+        this.positionOf = new int[seats];
+        int[] begins = new int[rows + 1];
+        int[] rowsWithFree = new int[rows];
+
+        int n = 0;
+        int r = 0;
+        for (int row = 0; row < rows; row++) {
+            int before = n;
+            for (int i = map.getRowStart(row); i < map.getRowEnd(row); i++) {
+                rowOf[i] = row;
+                if (map.isAvailable(i) && !taken[i]) {
+                    snapshot[i] = true;
+                    positionOf[i] = n;
+                    positions[n++] = i;
+                }
+            }
+            if (n > before) {
+                begins[r] = before;
+                rowsWithFree[r++] = row;
+            }
+        }
+        begins[r] = n;
+
+        this.free = snapshot;
+        this.rowOfIndex = rowOf;
+        this.layoutIndex = positions;
+        this.rowBegin = begins;
+        this.layoutRow = rowsWithFree;
+        this.count = n;
+        this.rowCount = r;
+    }
+
+    public ShowSeatMap getSeatMap() { return map; }
+
+    /** Number of free seats */
+    public int getCount() { return count; }
+
+    /** Number of rows with at least one free seat */
+    public int getFreeRowCount() { return rowCount; }
+
+    public int getRowBegin(int freeRow) { return rowBegin[freeRow]; }
+    public int getRowEnd(int freeRow) { return rowBegin[freeRow + 1]; }
+
+    /** Row index in the seat map of a free row */
+    public int getLayoutRow(int freeRow) { return layoutRow[freeRow]; }
+
+    public int getLayoutIndex(int pos) { return layoutIndex[pos]; }
+
+    public int getSeatNumber(int pos) { return map.getSeatNumber(layoutIndex[pos]); }
+
+    /** Row index in the seat map of any layout index (free or not) */
+    public int rowOf(int index) { return rowOfIndex[index]; }
+
+    public boolean isFree(int index) { return free[index]; }
+
+    /**
+     * Runs of at least minLength consecutive free seats as [start, end) position pairs, in position order
+     * Output-sensitive: only the runs the seat map's index returns are looked at. A run that
+     * changed since the snapshot is cut down to the seats that were free in it.
+     */
+    public int[] getRuns(int minLength) {
+        int[] indexRuns = map.getFreeRuns(minLength);
+        int[] runs = new int[indexRuns.length];
+        int k = 0;
+        for (int r = 0; r < indexRuns.length; r += 2) {
+            int end = indexRuns[r + 1];
+            int i = indexRuns[r];
+            while (i < end) {
+                while (i < end && !free[i]) i++;
+                int j = i;
+                while (j < end && free[j]) j++;
+                if (j - i >= minLength) {
+                    if (k == runs.length) {
+                        runs = Arrays.copyOf(runs, runs.length * 2);
+                    }
+                    runs[k++] = positionOf[i];
+                    runs[k++] = positionOf[i] + (j - i);
+                }
+                i = j;
+            }
+        }
+        return k == runs.length ? runs : Arrays.copyOf(runs, k);
+    }
+
+    /**
+     * Offset in `runs` (as returned by getRuns) of the first run starting at or after position `pos`
+     */
+    public static int firstRunFrom(int[] runs, int pos) {
+        int lo = 0;
+        int hi = runs.length / 2;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (runs[2 * mid] < pos) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return 2 * lo;
+    }
+
+    /**
+     * Layout indices of the free seats at positions [pos, pos + size)
+     */
+    public int[] layoutIndices(int pos, int size) {
+        int[] indices = new int[size];
+        System.arraycopy(layoutIndex, pos, indices, 0, size);
+        return indices;
+    }
+}
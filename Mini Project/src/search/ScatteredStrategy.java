@@ -0,0 +1,33 @@
+package com.moviebooking.search;
+
+/**
+ * Any `groupSize` free seats that are neighbours in seat-map order (row by row)
+ *
+ * The fallback when no row has room: windows slide over the free seats of the whole hall,
+ * so they may span several rows and skip booked seats.
+ */
+public class ScatteredStrategy implements SeatSearchStrategy {
+
+    public static final String TYPE = "SCATTERED";
+
+    // Deadline is polled once per this many windows
+    private static final int CHECK_INTERVAL = 64;
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public void search(SearchContext context) {
+        FreeSeatView view = context.getView();
+        int size = context.getGroupSize();
+
+        for (int start = 0; start + size <= view.getCount(); start++) {
+            if (start % CHECK_INTERVAL == 0 && context.isExpired()) {
+                return;
+            }
+            context.offer(TYPE, view.layoutIndices(start, size));
+        }
+    }
+}
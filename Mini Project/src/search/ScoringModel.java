@@ -0,0 +1,129 @@
+package com.moviebooking.search;
+
+import com.moviebooking.cache.ShowSeatMap;
+import java.util.Arrays;
+
+/**
+ * Weighted score of a seat arrangement - lower is better
+ *
+ * Four components, each normalised to roughly 0..1 before weighting:
+ *   centre        - how far the seats sit from the middle of their row (the screen axis)
+ *   row           - how far the group's mean row is from the preferred row
+ *   cohesion      - rows spanned and booked seats between the group's seats, per group member
+ *   fragmentation - free seats the booking would leave isolated, per group member
+ * Row distances use row indices, not row labels, so "Z" and "AA" are one row apart.
+ */
+public final class ScoringModel {
+
+    // Preferred row as a fraction of the hall depth from the screen (two thirds back)
+    private static final double DEFAULT_PREFERRED_ROW = 0.66;
+
+    // One extra row in a group costs as much as this many booked seats inside a row
+    private static final double ROW_SPAN_COST = 2.0;
+
+    private final double centreWeight;
+    private final double rowWeight;
+    private final double cohesionWeight;
+    private final double fragmentationWeight;
+    private final double preferredRow;
+
+    public ScoringModel(double centreWeight, double rowWeight, double cohesionWeight,
+                        double fragmentationWeight, double preferredRow) {
+        this.centreWeight = centreWeight;
+        this.rowWeight = rowWeight;
+        this.cohesionWeight = cohesionWeight;
+        this.fragmentationWeight = fragmentationWeight;
+        this.preferredRow = preferredRow;
+    }
+
+    /**
+     * Default weights: keeping the group together matters most, then a good seat, then tidiness
+     */
+    public static ScoringModel defaults() {
+        return new ScoringModel(1.0, 1.0, 2.0, 0.5, DEFAULT_PREFERRED_ROW);
+    }
+
+    /**
+     * Score of the seats at the given layout indices (sorted ascending) of a free-seat snapshot
+     */
+    public double score(FreeSeatView view, int[] indices) {
+        ShowSeatMap map = view.getSeatMap();
+        int n = indices.length;
+        int rows = map.getRowCount();
+
+        double centre = 0;
+        double rowSum = 0;
+        int rowMin = Integer.MAX_VALUE;
+        int rowMax = Integer.MIN_VALUE;
+        int gaps = 0;
+        int[] orphanSeats = new int[2 * n];
+        int orphans = 0;
+
+        int segmentRow = -1;
+        int segmentFirst = 0;
+        int segmentCount = 0;
+
+        for (int k = 0; k < n; k++) {
+            int index = indices[k];
+            int row = view.rowOf(index);
+            int start = map.getRowStart(row);
+            int end = map.getRowEnd(row);
+
+            double half = Math.max(1.0, (end - start - 1) / 2.0);
+            centre += Math.abs((index - start) - (end - start - 1) / 2.0) / half;
+            rowSum += row;
+            rowMin = Math.min(rowMin, row);
+            rowMax = Math.max(rowMax, row);
+
+            // Booked seats enclosed by the group inside one row
+            if (row != segmentRow) {
+                if (segmentRow >= 0) {
+                    gaps += indices[k - 1] - segmentFirst + 1 - segmentCount;
+                }
+                segmentRow = row;
+                segmentFirst = index;
+                segmentCount = 0;
+            }
+            segmentCount++;
+
+            // A seat between two chosen seats is reached twice but counted once
+            for (int seat = index - 1; seat <= index + 1; seat += 2) {
+                if (isOrphanedBy(view, indices, seat, start, end) && !contains(orphanSeats, orphans, seat)) {
+                    orphanSeats[orphans++] = seat;
+                }
+            }
+        }
+        gaps += indices[n - 1] - segmentFirst + 1 - segmentCount;
+
+        double target = preferredRow * (rows - 1);
+        double rowScore = Math.abs(rowSum / n - target) / Math.max(1, rows - 1);
+        double cohesion = ((rowMax - rowMin) * ROW_SPAN_COST + gaps) / n;
+        double fragmentation = (double) orphans / n;
+
+        return 100 * (centreWeight * (centre / n) + rowWeight * rowScore
+                + cohesionWeight * cohesion + fragmentationWeight * fragmentation);
+    }
+
+    /**
+     * Whether a free seat next to the group would be left with no free neighbour of its own
+     */
+    private static boolean isOrphanedBy(FreeSeatView view, int[] indices, int seat, int rowStart, int rowEnd) {
+        if (seat < rowStart || seat >= rowEnd || !view.isFree(seat) || isChosen(indices, seat)) {
+            return false;
+        }
+        boolean leftTaken = seat - 1 < rowStart || !view.isFree(seat - 1) || isChosen(indices, seat - 1);
+        boolean rightTaken = seat + 1 >= rowEnd || !view.isFree(seat + 1) || isChosen(indices, seat + 1);
+        return leftTaken && rightTaken;
+    }
+
+    private static boolean isChosen(int[] indices, int index) {
+        return Arrays.binarySearch(indices, index) >= 0;
+    }
+
+    private static boolean contains(int[] values, int size, int value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) return true;
+        }
+        return false;
+    }
+}
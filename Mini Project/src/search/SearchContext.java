@@ -0,0 +1,115 @@
+package com.moviebooking.search;
+
+import com.moviebooking.cache.ShowSeatMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * State of one seat search, shared by the strategies running it
+ *
+ * Candidates are scored on the offering thread (no lock held) and only the best `keep`
+ * are retained, no two of which share half or more of their seats: a block shifted by a
+ * seat or two is the same choice for the user, so near copies compete for a single slot
+ * and the results show genuinely different places. Once the search is closed (results
+ * taken or time budget spent) further offers are ignored.
+ */
+public final class SearchContext {
+
+    private static final Comparator<Candidate> WORST_FIRST =
+            Comparator.comparingDouble(Candidate::getScore).reversed();
+
+    private final FreeSeatView view;
+    private final int groupSize;
+    private final ScoringModel scoring;
+    private final int keep;
+    private final long deadlineNanos;
+
+    private final PriorityQueue<Candidate> best;
+    private volatile boolean closed;
+    private long offered;
+
+    public SearchContext(ShowSeatMap seatMap, int groupSize, ScoringModel scoring, int keep, long deadlineNanos) {
+        this(new FreeSeatView(seatMap), groupSize, scoring, keep, deadlineNanos);
+    }
+
+    public SearchContext(FreeSeatView view, int groupSize, ScoringModel scoring, int keep, long deadlineNanos) {
+        this.view = view;
+        this.groupSize = groupSize;
+        this.scoring = scoring;
+        this.keep = Math.max(1, keep);
+        this.deadlineNanos = deadlineNanos;
+        this.best = new PriorityQueue<>(this.keep + 1, WORST_FIRST);
+    }
+
+    public FreeSeatView getView() { return view; }
+    public int getGroupSize() { return groupSize; }
+
+    /**
+     * True once the time budget is spent or the search was closed - strategies should stop
+     */
+    public boolean isExpired() {
+        return closed || System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    /**
+     * Propose the seats at the given layout indices (any order) as an arrangement
+     */
+    public void offer(String type, int[] indices) {
+        if (closed || indices.length != groupSize) {
+            return;
+        }
+        Arrays.sort(indices);
+        Candidate candidate = new Candidate(type, indices, scoring.score(view, indices));
+
+        synchronized (this) {
+            offered++;
+            if (closed) {
+                return;
+            }
+            if (best.size() == keep && candidate.getScore() >= best.peek().getScore()) {
+                return;
+            }
+            // At most `keep` retained, so a linear scan; on a tie (same seats from another strategy) the first one stays
+            List<Candidate> similar = null;
+            for (Candidate kept : best) {
+                if (tooSimilar(kept, candidate)) {
+                    if (kept.getScore() <= candidate.getScore()) {
+                        return;
+                    }
+                    if (similar == null) {
+                        similar = new ArrayList<>(1);
+                    }
+                    similar.add(kept);
+                }
+            }
+            if (similar != null) {
+                best.removeAll(similar);
+            }
+            best.add(candidate);
+            if (best.size() > keep) {
+                best.poll();
+            }
+        }
+    }
+
+    /**
+     * Stop accepting candidates and return the best ones, best first
+     */
+    public synchronized List<Candidate> close() {
+        closed = true;
+        List<Candidate> results = new ArrayList<>(best);
+        results.sort(Comparator.comparingDouble(Candidate::getScore));
+        return results;
+    }
+
+    public synchronized long getOfferedCount() {
+        return offered;
+    }
+
+    private boolean tooSimilar(Candidate a, Candidate b) {
+        return a.sharedSeats(b) * 2 >= groupSize;
+    }
+}
@@ -0,0 +1,155 @@
+package com.moviebooking.search;
+
+import com.moviebooking.cache.ShowSeatMap;
+import com.moviebooking.util.Log;
+import com.moviebooking.util.Metrics;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs the registered seat search strategies against one snapshot of a show's seat map
+ *
+ * Small halls are searched on the calling thread. Larger ones run every strategy as its
+ * own task on a shared fork-join pool and the caller waits at most the time budget
+ * (-Dseat.search.budgetMs, default 50); strategies still running then are told to stop
+ * and the best arrangements offered so far are returned.
+ */
+public class SeatSearchEngine {
+
+    private static final Log log = Log.getLogger(SeatSearchEngine.class);
+
+    private static final long DEFAULT_BUDGET_MS = Long.getLong("seat.search.budgetMs", 50);
+
+    // Below this many free seats forking costs more than it saves
+    private static final int PARALLEL_THRESHOLD = 300;
+
+    private static final Metrics.Counter BUDGET_EXCEEDED =
+            Metrics.counter("seat_search_budget_exceeded_total", "Seat searches that ran out of time budget");
+
+    private static final SeatSearchEngine INSTANCE = new SeatSearchEngine();
+
+    private final ForkJoinPool pool;
+    private final List<SeatSearchStrategy> strategies = new CopyOnWriteArrayList<>();
+    private final ScoringModel scoring = ScoringModel.defaults();
+
+    private SeatSearchEngine() {
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("seat-search-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+
+        strategies.add(new SingleRowStrategy());
+        strategies.add(new SplitRowStrategy());
+        strategies.add(new ScatteredStrategy());
+        for (SeatSearchStrategy extra : ServiceLoader.load(SeatSearchStrategy.class)) {
+            register(extra);
+        }
+    }
+
+    public static SeatSearchEngine getInstance() {
+        return INSTANCE;
+    }
+
+    public void register(SeatSearchStrategy strategy) {
+        strategies.add(strategy);
+        log.info("seat.search.strategyRegistered", "type", strategy.getType(), "class", strategy.getClass().getName());
+    }
+
+    public List<SeatSearchStrategy> getStrategies() {
+        return Collections.unmodifiableList(strategies);
+    }
+
+    public long getDefaultBudgetMs() {
+        return DEFAULT_BUDGET_MS;
+    }
+
+    /**
+     * Best `maxResults` arrangements for a group, best first, within the default time budget
+     */
+    public List<Candidate> search(ShowSeatMap seatMap, int groupSize, int maxResults) {
+        return search(seatMap, groupSize, maxResults, Collections.<Integer>emptySet(), DEFAULT_BUDGET_MS);
+    }
+
+    /**
+     * Same, treating the given seats as taken (e.g. held by other users while they pay)
+     */
+    public List<Candidate> search(ShowSeatMap seatMap, int groupSize, int maxResults, Set<Integer> takenSeatIds) {
+        return search(seatMap, groupSize, maxResults, takenSeatIds, DEFAULT_BUDGET_MS);
+    }
+
+    public List<Candidate> search(ShowSeatMap seatMap, int groupSize, int maxResults, long budgetMs) {
+        return search(seatMap, groupSize, maxResults, Collections.<Integer>emptySet(), budgetMs);
+    }
+
+    public List<Candidate> search(ShowSeatMap seatMap, int groupSize, int maxResults,
+                                  Set<Integer> takenSeatIds, long budgetMs) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs);
+        FreeSeatView view = new FreeSeatView(seatMap, takenSeatIds);
+        if (groupSize <= 0 || maxResults <= 0 || view.getCount() < groupSize) {
+            return new ArrayList<>();
+        }
+        SearchContext context = new SearchContext(view, groupSize, scoring, maxResults, deadline);
+
+        if (view.getCount() < PARALLEL_THRESHOLD) {
+            for (SeatSearchStrategy strategy : strategies) {
+                run(strategy, context);
+            }
+        } else {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(strategies.size());
+            for (SeatSearchStrategy strategy : strategies) {
+                tasks.add(pool.submit(() -> run(strategy, context)));
+            }
+            awaitAll(tasks, deadline, seatMap.getShowId(), groupSize);
+        }
+
+        if (context.isExpired()) {
+            BUDGET_EXCEEDED.inc();
+        }
+        return context.close();
+    }
+
+    private void awaitAll(List<ForkJoinTask<?>> tasks, long deadline, int showId, int groupSize) {
+        for (ForkJoinTask<?> task : tasks) {
+            try {
+                task.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                log.debug("seat.search.budgetExceeded", "showId", showId, "groupSize", groupSize);
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                // run() already logged it
+            }
+        }
+    }
+
+    private static void run(SeatSearchStrategy strategy, SearchContext context) {
+        try {
+            strategy.search(context);
+        } catch (RuntimeException e) {
+            log.warn("seat.search.strategyFailed", e, "type", strategy.getType(),
+                    "groupSize", context.getGroupSize());
+        }
+    }
+
+    public int getActiveThreadCount() {
+        return pool.getActiveThreadCount();
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
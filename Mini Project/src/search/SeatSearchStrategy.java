@@ -0,0 +1,23 @@
+package com.moviebooking.search;
+
+/**
+ * Seat search strategy SPI
+ *
+ * A strategy proposes candidate arrangements for one search through SearchContext.offer();
+ * the context scores them with the shared ScoringModel and keeps the best ones, so a
+ * strategy only decides which seat combinations are worth looking at. Strategies of one
+ * search run in parallel and must poll SearchContext.isExpired() in their loops - whatever
+ * was offered before the time budget ran out is still used.
+ *
+ * Besides the built-in strategies, implementations listed in
+ * META-INF/services/com.moviebooking.search.SeatSearchStrategy are picked up at start-up.
+ */
+public interface SeatSearchStrategy {
+
+    /**
+     * Arrangement type reported with this strategy's candidates (e.g. SINGLE_ROW)
+     */
+    String getType();
+
+    void search(SearchContext context);
+}
@@ -0,0 +1,29 @@
+package com.moviebooking.search;
+
+/**
+ * Every window of consecutive free seats inside one row
+ * Only the free runs long enough for the group are visited, so the cost follows the
+ * number of windows found, not the size of the hall.
+ */
+public class SingleRowStrategy implements SeatSearchStrategy {
+
+    public static final String TYPE = "SINGLE_ROW";
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public void search(SearchContext context) {
+        FreeSeatView view = context.getView();
+        int size = context.getGroupSize();
+
+        int[] runs = view.getRuns(size);
+        for (int r = 0; r < runs.length && !context.isExpired(); r += 2) {
+            for (int pos = runs[r]; pos + size <= runs[r + 1]; pos++) {
+                context.offer(TYPE, view.layoutIndices(pos, size));
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.moviebooking.search;
+
+/**
+ * A consecutive block in one row plus a consecutive block in the row directly behind it
+ *
+ * Only rows that are neighbours in the seat map are paired - a row with no free seats in
+ * between means the group is not sitting together. For every split and every block in the
+ * front row the block behind it that lines up best (nearest seat number) is offered.
+ */
+public class SplitRowStrategy implements SeatSearchStrategy {
+
+    public static final String TYPE = "SPLIT_ROWS";
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public void search(SearchContext context) {
+        FreeSeatView view = context.getView();
+        int size = context.getGroupSize();
+        if (size < 2) {
+            return;
+        }
+
+        // runs[k]: free runs of at least k seats, one index query per block size
+        int[][] runs = new int[size][];
+        for (int k = 1; k < size; k++) {
+            runs[k] = view.getRuns(k);
+        }
+
+        for (int row = 0; row < view.getFreeRowCount() - 1 && !context.isExpired(); row++) {
+            if (view.getLayoutRow(row + 1) != view.getLayoutRow(row) + 1) {
+                continue;
+            }
+            for (int frontSeats = 1; frontSeats < size; frontSeats++) {
+                int backSeats = size - frontSeats;
+                int[] frontRuns = runs[frontSeats];
+                int[] backRuns = runs[backSeats];
+                int backFirst = FreeSeatView.firstRunFrom(backRuns, view.getRowBegin(row + 1));
+                if (backFirst == backRuns.length || backRuns[backFirst] >= view.getRowEnd(row + 1)) {
+                    // No block of this size behind
+                    continue;
+                }
+
+                int rowEnd = view.getRowEnd(row);
+                for (int r = FreeSeatView.firstRunFrom(frontRuns, view.getRowBegin(row));
+                     r < frontRuns.length && frontRuns[r] < rowEnd; r += 2) {
+                    for (int front = frontRuns[r]; front + frontSeats <= frontRuns[r + 1]; front++) {
+                        int back = alignedWindow(view, backRuns, backFirst, row + 1, backSeats,
+                                view.getSeatNumber(front));
+                        int[] indices = new int[size];
+                        for (int k = 0; k < frontSeats; k++) {
+                            indices[k] = view.getLayoutIndex(front + k);
+                        }
+                        for (int k = 0; k < backSeats; k++) {
+                            indices[frontSeats + k] = view.getLayoutIndex(back + k);
+                        }
+                        context.offer(TYPE, indices);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Window in free row `row` whose first seat number is nearest to `seatNumber`
+     * `first` is the offset of the row's first run in `runs`; seat numbers are consecutive
+     * inside a run, so each run's nearest window is found without walking it.
+     */
+    private static int alignedWindow(FreeSeatView view, int[] runs, int first, int row, int size, int seatNumber) {
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        int rowEnd = view.getRowEnd(row);
+        for (int r = first; r < runs.length && runs[r] < rowEnd; r += 2) {
+            int start = runs[r];
+            if (view.getSeatNumber(start) - seatNumber >= bestDistance) {
+                // Seat numbers only grow along the row, so the distance only grows from here
+                break;
+            }
+            int pos = Math.max(start, Math.min(runs[r + 1] - size, start + seatNumber - view.getSeatNumber(start)));
+            int distance = Math.abs(view.getSeatNumber(pos) - seatNumber);
+            if (distance < bestDistance) {
+                best = pos;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+}
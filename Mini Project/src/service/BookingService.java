@@ -0,0 +1,263 @@
+package com.moviebooking.service;
+
+import com.moviebooking.cache.SeatMapCache;
+import com.moviebooking.cache.ShowScheduleCache;
+import com.moviebooking.cache.ShowSeatCounters;
+import com.moviebooking.cache.ShowSeatMap;
+import com.moviebooking.cache.WaitlistQueues;
+import com.moviebooking.dao.MovieDAO;
+import com.moviebooking.dao.SeatDAO;
+import com.moviebooking.model.Show;
+import com.moviebooking.util.DBConnection;
+import com.moviebooking.util.Log;
+import com.moviebooking.util.Metrics;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * The booking engine behind every booking path
+ *
+ * Owns the booking transaction (booking row, set-based seat claim with batched details,
+ * waitlist clean-up, commit), retries it on transient lock errors, publishes the result to
+ * the seat map and seat counters after commit, and builds the ticket from the caches.
+ * BookingServlet, PaymentServlet and the optimistic mode are thin adapters around it.
+ */
+public class BookingService {
+
+    private static final Log log = Log.getLogger(BookingService.class);
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long BASE_BACKOFF_MS = 20;
+
+    private static final Metrics.Timer TRANSACTION_TIMER =
+            Metrics.timer("booking_transaction_seconds", "Booking transaction attempt, begin to commit or rollback");
+    private static final Metrics.Timer COMMIT_TIMER =
+            Metrics.timer("booking_commit_seconds", "Commit of a booking or cancellation transaction", "operation", "book");
+
+    private static final BookingService INSTANCE = new BookingService();
+
+    private final SeatDAO seatDAO = new SeatDAO();
+    private final MovieDAO movieDAO = new MovieDAO();
+
+    private final AtomicLong bookings = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong totalTransactionNanos = new AtomicLong();
+
+    private BookingService() {}
+
+    public static BookingService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Price of the given number of seats for a show (0 if the show is unknown)
+     */
+    public double quote(int showId, int seatCount) throws SQLException {
+        Show show = ShowScheduleCache.getInstance().getShow(showId);
+        return show != null ? show.getPrice() * seatCount : 0;
+    }
+
+    /**
+     * Book seats in one transaction
+     * Returns the new booking id, or -1 if any seat was no longer available
+     */
+    public int createBooking(int userId, int showId, List<Integer> seatIds, double totalAmount) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
+            ShowSeatCounters seatCounters = ShowSeatCounters.getInstance();
+            // Held until the counter has moved, so no waitlist promotion reads it in between
+            Lock counterLock = seatCounters.changeLock(showId);
+            counterLock.lock();
+            try {
+                Booked booked = runTransaction(userId, showId, seatIds, totalAmount);
+                if (booked == null) {
+                    conflicts.incrementAndGet();
+                    return -1;
+                }
+                int bookingId = booked.bookingId;
+
+                SeatMapCache.getInstance().markBooked(showId, seatIds);
+                // Seats reserved for a notified user already came off the counter at promotion
+                seatCounters.add(showId, -(seatIds.size() - booked.reservedSeats));
+                WaitlistQueues.getInstance().removeUser(showId, userId);
+                bookings.incrementAndGet();
+                log.info("booking.created", "bookingId", bookingId, "userId", userId, "showId", showId, "seats", seatIds.size());
+                return bookingId;
+
+            } catch (SQLException e) {
+                if (!isTransient(e) || attempt == MAX_ATTEMPTS) {
+                    failures.incrementAndGet();
+                    throw e;
+                }
+                retries.incrementAndGet();
+                log.warn("booking.retry", e, "attempt", attempt, "userId", userId, "showId", showId);
+            } finally {
+                counterLock.unlock();
+                long elapsed = System.nanoTime() - start;
+                totalTransactionNanos.addAndGet(elapsed);
+                TRANSACTION_TIMER.record(elapsed);
+            }
+            // Outside the lock, a waiting promotion can run meanwhile
+            backoff(attempt);
+        }
+    }
+
+    /**
+     * Ticket data for the ticket page, from the caches where possible
+     */
+    public Map<String, Object> buildTicket(int bookingId, int movieId, int showId,
+                                           List<Integer> seatIds, double totalAmount) throws SQLException {
+        Map<String, Object> bookingData = new HashMap<>();
+        bookingData.put("movie", movieDAO.getMovieById(movieId));
+
+        Show show = ShowScheduleCache.getInstance().getShow(showId);
+        if (show != null) {
+            bookingData.put("showTime", show.getFullTime());
+        }
+
+        bookingData.put("seatLabels", getSeatLabels(showId, seatIds));
+        bookingData.put("totalAmount", totalAmount);
+        bookingData.put("bookingId", bookingId);
+        bookingData.put("bookingDate", new java.text.SimpleDateFormat("dd MMM yyyy HH:mm").format(new java.util.Date()));
+        return bookingData;
+    }
+
+    public long getBookingCount() { return bookings.get(); }
+    public long getConflictCount() { return conflicts.get(); }
+    public long getFailureCount() { return failures.get(); }
+    public long getRetryCount() { return retries.get(); }
+    public long getTotalTransactionNanos() { return totalTransactionNanos.get(); }
+
+    private Booked runTransaction(int userId, int showId, List<Integer> seatIds, double totalAmount) throws SQLException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = DBConnection.getConnection();
+            conn.setAutoCommit(false);
+
+            // Step 1: Booking row
+            String bookingSql = "INSERT INTO bookings (booking_id, user_id, show_id, booking_date, total_amount, payment_status, booking_status) " +
+                    "VALUES (booking_seq.NEXTVAL, ?, ?, SYSDATE, ?, 'Completed', 'Active')";
+            stmt = conn.prepareStatement(bookingSql, new String[]{"booking_id"});
+            stmt.setInt(1, userId);
+            stmt.setInt(2, showId);
+            stmt.setDouble(3, totalAmount);
+            stmt.executeUpdate();
+
+            rs = stmt.getGeneratedKeys();
+            int bookingId = rs.next() ? rs.getInt(1) : 0;
+            rs.close();
+            stmt.close();
+
+            // Step 2: Claim the seats and write booking details on the same connection
+            if (bookingId <= 0 || !seatDAO.bookSeats(seatIds, bookingId, conn)) {
+                conn.rollback();
+                return null;
+            }
+
+            // Step 3: Remove user from waitlist if they were waiting, keeping what a notification reserved
+            String reservedSql = "SELECT requested_seats FROM waitlist WHERE user_id = ? AND show_id = ? AND status = 'Notified' FOR UPDATE";
+            stmt = conn.prepareStatement(reservedSql);
+            stmt.setInt(1, userId);
+            stmt.setInt(2, showId);
+            rs = stmt.executeQuery();
+            int reservedSeats = 0;
+            while (rs.next()) {
+                reservedSeats += rs.getInt("requested_seats");
+            }
+            rs.close();
+            stmt.close();
+
+            String removeWaitlistSql = "UPDATE waitlist SET status = 'Fulfilled' WHERE user_id = ? AND show_id = ? AND status IN ('Waiting', 'Notified')";
+            stmt = conn.prepareStatement(removeWaitlistSql);
+            stmt.setInt(1, userId);
+            stmt.setInt(2, showId);
+            stmt.executeUpdate();
+            stmt.close();
+
+            // Step 4: Commit (the available-seat counter moves after commit)
+            long commitStart = System.nanoTime();
+            conn.commit();
+            COMMIT_TIMER.recordSince(commitStart);
+            return new Booked(bookingId, reservedSeats);
+
+        } catch (SQLException e) {
+            if (conn != null) conn.rollback();
+            throw e;
+        } finally {
+            try {
+                if (rs != null) rs.close();
+                if (stmt != null) stmt.close();
+                if (conn != null) conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                log.warn("booking.closeFailed", e);
+            } finally {
+                // Closed even if the cleanup above failed, the pool resets auto-commit on return
+                if (conn != null) {
+                    try {
+                        conn.close();
+                    } catch (SQLException e) {
+                        log.warn("booking.closeFailed", e);
+                    }
+                }
+            }
+        }
+    }
+
+    // A committed booking and the seats its user's waitlist notification had reserved
+    private static final class Booked {
+        final int bookingId;
+        final int reservedSeats;
+
+        Booked(int bookingId, int reservedSeats) {
+            this.bookingId = bookingId;
+            this.reservedSeats = reservedSeats;
+        }
+    }
+
+    // Labels in request order from the resident seat map, one query only if the map is not loaded
+    private List<String> getSeatLabels(int showId, List<Integer> seatIds) throws SQLException {
+        ShowSeatMap seatMap = SeatMapCache.getInstance().peek(showId);
+        if (seatMap != null) {
+            List<String> labels = new ArrayList<>(seatIds.size());
+            for (Integer seatId : seatIds) {
+                int index = seatMap.indexOf(seatId);
+                if (index < 0) {
+                    return seatDAO.getSeatLabels(seatIds);
+                }
+                labels.add(seatMap.getSeatLabel(index));
+            }
+            return labels;
+        }
+        return seatDAO.getSeatLabels(seatIds);
+    }
+
+    // Deadlocks, serialization failures and lock timeouts are worth another try
+    static boolean isTransient(SQLException e) {
+        String state = e.getSQLState();
+        int code = e.getErrorCode();
+        return (state != null && state.startsWith("40")) || code == 60 || code == 54 || code == 8177;
+    }
+
+    static void backoff(int attempt) {
+        long ceiling = BASE_BACKOFF_MS << (attempt - 1);
+        try {
+            Thread.sleep(ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
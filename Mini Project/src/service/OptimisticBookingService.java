@@ -0,0 +1,180 @@
+package com.moviebooking.service;
+
+import com.moviebooking.cache.SeatMapCache;
+import com.moviebooking.cache.ShowSeatMap;
+import com.moviebooking.dao.AdvancedSeatSearchDAO;
+import com.moviebooking.dao.AdvancedSeatSearchDAO.SeatArrangement;
+import com.moviebooking.model.Seat;
+import com.moviebooking.util.Log;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Optimistic booking mode
+ *
+ * Instead of holding seats up front, a booking reads the resident seat map, checks that
+ * the seats are still free (same map version means nothing changed) and claims them through
+ * BookingService, whose conditional seat UPDATE is the real validation. A lost race is retried
+ * with a bounded, jittered backoff while the seats still look free; once they are taken the
+ * caller gets the nearest free arrangements of the same size to offer instead.
+ * Enabled with -Dbooking.mode=optimistic.
+ */
+public class OptimisticBookingService {
+
+    private static final Log log = Log.getLogger(OptimisticBookingService.class);
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int MAX_SUGGESTIONS = 3;
+
+    private final BookingService bookingService = BookingService.getInstance();
+    private final AdvancedSeatSearchDAO seatSearchDAO = new AdvancedSeatSearchDAO();
+
+    public static boolean isEnabled() {
+        return "optimistic".equalsIgnoreCase(System.getProperty("booking.mode"));
+    }
+
+    /**
+     * Book the seats for a user, retrying lost races while the seats still look free
+     */
+    public Outcome book(int userId, int showId, List<Integer> seatIds, double totalAmount) throws SQLException {
+        SeatMapCache seatMaps = SeatMapCache.getInstance();
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            ShowSeatMap seatMap = seatMaps.get(showId);
+            if (seatMap == null) {
+                return Outcome.failed(attempt);
+            }
+
+            long version = seatMap.getVersion();
+            List<Integer> taken = findTakenSeats(seatMap, showId, userId, seatIds);
+            if (!taken.isEmpty()) {
+                return Outcome.conflict(attempt, taken, suggestAlternatives(seatMap, showId, userId, seatIds));
+            }
+
+            int bookingId = bookingService.createBooking(userId, showId, seatIds, totalAmount);
+            if (bookingId > 0) {
+                return Outcome.booked(attempt, bookingId);
+            }
+
+            // The database refused seats the map still shows as free: either the winner has not
+            // published its booking yet, or the map missed a change - reload it if nothing moved
+            if (seatMap.getVersion() == version) {
+                seatMaps.invalidate(showId);
+            }
+            log.info("booking.optimistic.lostRace", "attempt", attempt, "showId", showId, "userId", userId);
+            BookingService.backoff(attempt);
+        }
+
+        ShowSeatMap seatMap = seatMaps.get(showId);
+        List<Integer> taken = seatMap != null ? findTakenSeats(seatMap, showId, userId, seatIds) : seatIds;
+        List<SeatArrangement> alternatives = seatMap != null
+                ? suggestAlternatives(seatMap, showId, userId, seatIds)
+                : Collections.<SeatArrangement>emptyList();
+        return Outcome.conflict(MAX_ATTEMPTS, taken, alternatives);
+    }
+
+    // Requested seats that are booked, unknown, or being paid for by someone else
+    private List<Integer> findTakenSeats(ShowSeatMap seatMap, int showId, int userId, List<Integer> seatIds) {
+        Set<Integer> heldByOthers = SeatHoldService.getInstance().getSeatsHeldByOthers(showId, userId);
+        List<Integer> taken = new ArrayList<>();
+        for (Integer seatId : seatIds) {
+            int index = seatMap.indexOf(seatId);
+            if (index < 0 || !seatMap.isAvailable(index) || heldByOthers.contains(seatId)) {
+                taken.add(seatId);
+            }
+        }
+        return taken;
+    }
+
+    /**
+     * Free arrangements of the same size, closest to the seats the user picked first
+     */
+    private List<SeatArrangement> suggestAlternatives(ShowSeatMap seatMap, int showId, int userId, List<Integer> seatIds) {
+        Set<Integer> heldByOthers = SeatHoldService.getInstance().getSeatsHeldByOthers(showId, userId);
+        List<SeatArrangement> arrangements = seatSearchDAO.findAllBestSeatsForGroup(seatMap, seatIds.size(),
+                AdvancedSeatSearchDAO.DEFAULT_RESULT_LIMIT, heldByOthers);
+
+        double[] wanted = centre(seatMap, seatIds);
+        double[] distance = new double[arrangements.size()];
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < arrangements.size(); i++) {
+            List<Integer> ids = new ArrayList<>();
+            for (Seat seat : arrangements.get(i).getSeats()) {
+                ids.add(seat.getSeatId());
+            }
+            double[] at = centre(seatMap, ids);
+            // Same weighting as the group search: a row away costs as much as 100 seats along a row
+            distance[i] = Math.abs(at[0] - wanted[0]) * 100 + Math.abs(at[1] - wanted[1]);
+            order.add(i);
+        }
+        order.sort((a, b) -> Double.compare(distance[a], distance[b]));
+
+        List<SeatArrangement> nearest = new ArrayList<>();
+        for (int i = 0; i < order.size() && nearest.size() < MAX_SUGGESTIONS; i++) {
+            nearest.add(arrangements.get(order.get(i)));
+        }
+        return nearest;
+    }
+
+    // Average row index and seat number of a set of seats
+    private double[] centre(ShowSeatMap seatMap, List<Integer> seatIds) {
+        double row = 0;
+        double number = 0;
+        int counted = 0;
+        for (Integer seatId : seatIds) {
+            int index = seatMap.indexOf(seatId);
+            if (index >= 0) {
+                row += seatMap.getRowOf(index);
+                number += seatMap.getSeatNumber(index);
+                counted++;
+            }
+        }
+        return counted == 0 ? new double[]{0, 0} : new double[]{row / counted, number / counted};
+    }
+
+    /**
+     * Result of an optimistic booking
+     */
+    public static class Outcome {
+        public enum Status { BOOKED, CONFLICT, FAILED }
+
+        private final Status status;
+        private final int bookingId;
+        private final int attempts;
+        private final List<Integer> takenSeatIds;
+        private final List<SeatArrangement> alternatives;
+
+        private Outcome(Status status, int bookingId, int attempts,
+                        List<Integer> takenSeatIds, List<SeatArrangement> alternatives) {
+            this.status = status;
+            this.bookingId = bookingId;
+            this.attempts = attempts;
+            this.takenSeatIds = takenSeatIds;
+            this.alternatives = alternatives;
+        }
+
+        static Outcome booked(int attempts, int bookingId) {
+            return new Outcome(Status.BOOKED, bookingId, attempts, Collections.<Integer>emptyList(),
+                    Collections.<SeatArrangement>emptyList());
+        }
+
+        static Outcome conflict(int attempts, List<Integer> takenSeatIds, List<SeatArrangement> alternatives) {
+            return new Outcome(Status.CONFLICT, -1, attempts, takenSeatIds, alternatives);
+        }
+
+        static Outcome failed(int attempts) {
+            return new Outcome(Status.FAILED, -1, attempts, Collections.<Integer>emptyList(),
+                    Collections.<SeatArrangement>emptyList());
+        }
+
+        public Status getStatus() { return status; }
+        public boolean isBooked() { return status == Status.BOOKED; }
+        public int getBookingId() { return bookingId; }
+        public int getAttempts() { return attempts; }
+        public List<Integer> getTakenSeatIds() { return takenSeatIds; }
+        public List<SeatArrangement> getAlternatives() { return alternatives; }
+    }
+}
@@ -0,0 +1,48 @@
+package com.moviebooking.service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Payment provider used by the booking flow
+ *
+ * Calls are asynchronous: implementations must not block the calling thread while
+ * the provider is working, they complete the returned future instead.
+ */
+public interface PaymentGateway {
+
+    /**
+     * Charge a user, completes with the outcome (a declined card is a normal result, not an exception)
+     */
+    CompletableFuture<PaymentResult> charge(int userId, double amount);
+
+    /**
+     * Give back a charge that could not be turned into a booking
+     */
+    CompletableFuture<PaymentResult> refund(String transactionId, double amount);
+
+    /**
+     * Release any threads or connections held by the gateway
+     */
+    default void shutdown() {}
+
+    class PaymentResult {
+        private final boolean successful;
+        private final String transactionId;
+        private final String message;
+
+        public PaymentResult(boolean successful, String transactionId, String message) {
+            this.successful = successful;
+            this.transactionId = transactionId;
+            this.message = message;
+        }
+
+        public boolean isSuccessful() { return successful; }
+        public String getTransactionId() { return transactionId; }
+        public String getMessage() { return message; }
+
+        @Override
+        public String toString() {
+            return (successful ? "Approved" : "Declined") + " [" + transactionId + "] " + message;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.moviebooking.service;
+
+/**
+ * Holder for the payment gateway the application uses
+ *
+ * Defaults to the simulated gateway; latency and decline rate can be tuned with the
+ * payment.latencyMs and payment.failureRate system properties, or a real provider
+ * can be plugged in with setGateway() at startup.
+ */
+public class Payments {
+
+    private static final long DEFAULT_LATENCY_MS = 500;
+    private static final double DEFAULT_FAILURE_RATE = 0.0;
+
+    private static volatile PaymentGateway gateway = new SimulatedPaymentGateway(
+            Long.getLong("payment.latencyMs", DEFAULT_LATENCY_MS),
+            Double.parseDouble(System.getProperty("payment.failureRate", String.valueOf(DEFAULT_FAILURE_RATE))));
+
+    private Payments() {}
+
+    public static PaymentGateway getGateway() {
+        return gateway;
+    }
+
+    public static void setGateway(PaymentGateway newGateway) {
+        PaymentGateway old = gateway;
+        gateway = newGateway;
+        if (old != null && old != newGateway) {
+            old.shutdown();
+        }
+    }
+
+    public static void shutdown() {
+        gateway.shutdown();
+    }
+}
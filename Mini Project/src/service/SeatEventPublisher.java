@@ -0,0 +1,333 @@
+package com.moviebooking.service;
+
+import com.moviebooking.cache.SeatMapCache;
+import com.moviebooking.cache.ShowSeatMap;
+import com.moviebooking.util.Log;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes live seat occupancy of a show to browsers as Server-Sent Events
+ *
+ * Every subscriber first gets a snapshot of the booked seats, then one small delta event
+ * per committed booking or cancellation, fanned out from the SeatMapCache change
+ * notifications. Each event is encoded once and the same bytes go to every subscriber
+ * of the show. Writes use non-blocking servlet I/O: a subscriber whose connection cannot
+ * keep up buffers at most MAX_PENDING_FRAMES events and is then disconnected (its browser
+ * reconnects and starts again from a fresh snapshot). A single dispatcher thread does the
+ * fan-out and heartbeats, so the booking threads only hand over the change.
+ */
+public class SeatEventPublisher implements SeatMapCache.ChangeListener {
+
+    private static final Log log = Log.getLogger(SeatEventPublisher.class);
+
+    private static final long HEARTBEAT_MS = 15_000;
+    private static final long RECONNECT_MS = 3_000;
+    private static final int MAX_PENDING_FRAMES = 256;
+
+    private static final byte[] HEARTBEAT = ": ping\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private static final SeatEventPublisher INSTANCE = new SeatEventPublisher();
+
+    // showId -> open streams
+    private final ConcurrentHashMap<Integer, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService dispatcher;
+
+    private final AtomicLong eventIds = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong slowDisconnects = new AtomicLong();
+
+    private SeatEventPublisher() {
+        dispatcher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "seat-event-dispatcher");
+            t.setDaemon(true);
+            return t;
+        });
+        dispatcher.scheduleWithFixedDelay(this::heartbeat, HEARTBEAT_MS, HEARTBEAT_MS, TimeUnit.MILLISECONDS);
+        SeatMapCache.getInstance().addListener(this);
+    }
+
+    public static SeatEventPublisher getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Start streaming a show's seat events on an async request
+     * Returns false if the show has no seats; the caller then completes the request itself.
+     */
+    public boolean subscribe(int showId, AsyncContext async) throws SQLException, IOException {
+        // Registered before the snapshot is taken, so no change can fall between the two;
+        // deltas queued meanwhile are replayed on top of the snapshot, which is harmless
+        Subscriber subscriber = new Subscriber(showId, async);
+        subscribers.compute(showId, (id, set) -> {
+            Set<Subscriber> streams = set != null ? set : ConcurrentHashMap.newKeySet();
+            streams.add(subscriber);
+            return streams;
+        });
+
+        ShowSeatMap map = SeatMapCache.getInstance().get(showId);
+        if (map == null) {
+            remove(subscriber);
+            return false;
+        }
+        subscriber.start(snapshotFrame(map));
+        log.debug("seatStream.subscribed", "showId", showId, "subscribers", getSubscriberCount(showId));
+        return true;
+    }
+
+    @Override
+    public void seatsChanged(ShowSeatMap map, List<Integer> seatIds, boolean booked) {
+        int showId = map.getShowId();
+        if (!subscribers.containsKey(showId)) {
+            return;
+        }
+        byte[] frame = deltaFrame(map, seatIds, booked);
+        dispatch(() -> fanOut(showId, frame));
+    }
+
+    @Override
+    public void mapDropped(int showId) {
+        if (!subscribers.containsKey(showId)) {
+            return;
+        }
+        // One reload for all subscribers of the show instead of every browser reconnecting
+        dispatch(() -> {
+            try {
+                ShowSeatMap map = SeatMapCache.getInstance().get(showId);
+                if (map != null) {
+                    fanOut(showId, snapshotFrame(map));
+                }
+            } catch (SQLException e) {
+                log.warn("seatStream.reloadFailed", e, "showId", showId);
+                closeAll(showId);
+            }
+        });
+    }
+
+    public int getSubscriberCount() {
+        int total = 0;
+        for (Set<Subscriber> streams : subscribers.values()) {
+            total += streams.size();
+        }
+        return total;
+    }
+
+    public int getSubscriberCount(int showId) {
+        Set<Subscriber> streams = subscribers.get(showId);
+        return streams != null ? streams.size() : 0;
+    }
+
+    public long getPublishedCount() { return published.get(); }
+    public long getSlowDisconnectCount() { return slowDisconnects.get(); }
+
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        for (Integer showId : subscribers.keySet()) {
+            closeAll(showId);
+        }
+    }
+
+    private void dispatch(Runnable task) {
+        try {
+            dispatcher.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    private void fanOut(int showId, byte[] frame) {
+        Set<Subscriber> streams = subscribers.get(showId);
+        if (streams == null) {
+            return;
+        }
+        published.incrementAndGet();
+        for (Subscriber subscriber : streams) {
+            subscriber.send(frame);
+        }
+    }
+
+    private void heartbeat() {
+        for (Set<Subscriber> streams : subscribers.values()) {
+            for (Subscriber subscriber : streams) {
+                subscriber.send(HEARTBEAT);
+            }
+        }
+    }
+
+    private void closeAll(int showId) {
+        Set<Subscriber> streams = subscribers.get(showId);
+        if (streams != null) {
+            for (Subscriber subscriber : streams) {
+                subscriber.close();
+            }
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.showId, (id, streams) -> {
+            streams.remove(subscriber);
+            return streams.isEmpty() ? null : streams;
+        });
+    }
+
+    /**
+     * Full occupancy: {"showId":1,"version":7,"seats":120,"booked":[3,4,9]}
+     */
+    private byte[] snapshotFrame(ShowSeatMap map) {
+        StringBuilder data = new StringBuilder(64 + 8 * (map.getSeatCount() - map.getAvailableCount()));
+        data.append("{\"showId\":").append(map.getShowId())
+                .append(",\"version\":").append(map.getVersion())
+                .append(",\"seats\":").append(map.getSeatCount())
+                .append(",\"booked\":[");
+        boolean first = true;
+        for (int i = 0; i < map.getSeatCount(); i++) {
+            if (!map.isAvailable(i)) {
+                if (!first) data.append(',');
+                data.append(map.getSeatId(i));
+                first = false;
+            }
+        }
+        data.append("]}");
+        return frame("snapshot", data);
+    }
+
+    /**
+     * One change: {"showId":1,"version":8,"booked":[5,6]} or {"showId":1,"version":9,"released":[3]}
+     */
+    private byte[] deltaFrame(ShowSeatMap map, List<Integer> seatIds, boolean booked) {
+        StringBuilder data = new StringBuilder(48 + 8 * seatIds.size());
+        data.append("{\"showId\":").append(map.getShowId())
+                .append(",\"version\":").append(map.getVersion())
+                .append(booked ? ",\"booked\":[" : ",\"released\":[");
+        for (int i = 0; i < seatIds.size(); i++) {
+            if (i > 0) data.append(',');
+            data.append(seatIds.get(i));
+        }
+        data.append("]}");
+        return frame("seats", data);
+    }
+
+    private byte[] frame(String event, CharSequence data) {
+        return ("id: " + eventIds.incrementAndGet() + "\nevent: " + event + "\ndata: " + data + "\n\n")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * One open event stream
+     * send() is called from the dispatcher, onWritePossible() from the container; both
+     * drain the pending frames under the subscriber's lock while the connection accepts data.
+     */
+    private final class Subscriber implements WriteListener, AsyncListener {
+
+        private final int showId;
+        private final AsyncContext async;
+        private final ArrayDeque<byte[]> pending = new ArrayDeque<>();
+        private ServletOutputStream out;
+        private boolean closed;
+
+        Subscriber(int showId, AsyncContext async) {
+            this.showId = showId;
+            this.async = async;
+        }
+
+        synchronized void start(byte[] snapshot) throws IOException {
+            pending.addFirst(snapshot);
+            pending.addFirst(("retry: " + RECONNECT_MS + "\n\n").getBytes(StandardCharsets.UTF_8));
+            async.addListener(this);
+            out = async.getResponse().getOutputStream();
+            // The container calls onWritePossible() as soon as the listener is set
+            out.setWriteListener(this);
+        }
+
+        synchronized void send(byte[] frame) {
+            if (closed) {
+                return;
+            }
+            if (pending.size() >= MAX_PENDING_FRAMES) {
+                slowDisconnects.incrementAndGet();
+                log.info("seatStream.slowSubscriber", "showId", showId, "pending", pending.size());
+                close();
+                return;
+            }
+            pending.add(frame);
+            if (out != null) {
+                drain();
+            }
+        }
+
+        @Override
+        public synchronized void onWritePossible() {
+            drain();
+        }
+
+        private void drain() {
+            try {
+                while (!closed && !pending.isEmpty() && out.isReady()) {
+                    out.write(pending.poll());
+                }
+                if (!closed && pending.isEmpty() && out.isReady()) {
+                    out.flush();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client went away
+                close();
+            }
+        }
+
+        synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pending.clear();
+            remove(this);
+            try {
+                async.complete();
+            } catch (IllegalStateException e) {
+                // Already completed by the container
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            close();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            synchronized (this) {
+                closed = true;
+                pending.clear();
+            }
+            remove(this);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {}
+    }
+}
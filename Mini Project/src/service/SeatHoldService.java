@@ -0,0 +1,313 @@
+package com.moviebooking.service;
+
+import com.moviebooking.cache.SeatMapCache;
+import com.moviebooking.cache.ShowSeatMap;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Short-lived seat holds (soft locks)
+ *
+ * A user holds the seats they picked while they go through payment, so other users
+ * see those seats as taken instead of losing the race at commit time. Holds live only
+ * in memory, expire after HOLD_TTL_MS and are swept by a background reaper.
+ * A user holds at most MAX_SEATS_PER_USER seats of a show, and renewals never keep them
+ * past MAX_HOLD_MS from the user's first hold; after that the user waits one HOLD_TTL_MS
+ * before holding seats of that show again, so others get a chance at them.
+ * The conditional UPDATE in SeatDAO.bookSeats stays the real guard against double booking.
+ */
+public class SeatHoldService {
+
+    public static final long HOLD_TTL_MS = 5 * 60 * 1000;
+    public static final long MAX_HOLD_MS = 15 * 60 * 1000;
+    public static final int MAX_SEATS_PER_USER = 10;
+    private static final long REAPER_INTERVAL_MS = 5_000;
+
+    private static final SeatHoldService INSTANCE = new SeatHoldService();
+
+    // showId -> (seatId -> hold)
+    private final ConcurrentHashMap<Integer, ConcurrentHashMap<Integer, Hold>> holds = new ConcurrentHashMap<>();
+    // (showId, userId) -> time of the user's first hold on the show, until released or lapsed
+    private final ConcurrentHashMap<Long, Long> sessions = new ConcurrentHashMap<>();
+    // (showId, userId) -> seats in `holds` for the user, expired ones included until reaped;
+    // changed inside the same compute calls that change `holds`
+    private final ConcurrentHashMap<Long, Integer> heldCounts = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService reaper;
+
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong limited = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    private SeatHoldService() {
+        reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "seat-hold-reaper");
+            t.setDaemon(true);
+            return t;
+        });
+        reaper.scheduleWithFixedDelay(this::reapExpired, REAPER_INTERVAL_MS, REAPER_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public static SeatHoldService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Hold all seats for a user, or none of them
+     * Seats the user already holds are renewed. Fails if any seat is booked or held by someone else,
+     * or if the user would go over MAX_SEATS_PER_USER seats or past MAX_HOLD_MS on this show.
+     */
+    public boolean hold(int showId, int userId, List<Integer> seatIds) throws SQLException {
+        ShowSeatMap seatMap = SeatMapCache.getInstance().get(showId);
+        if (seatMap == null) {
+            return false;
+        }
+        for (Integer seatId : seatIds) {
+            int index = seatMap.indexOf(seatId);
+            if (index < 0 || !seatMap.isAvailable(index)) {
+                conflicts.incrementAndGet();
+                return false;
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        Long session = sessionKey(showId, userId);
+        Long started = sessions.get(session);
+        long since = started != null && !isLapsed(started, now) ? started : now;
+        if (now >= since + MAX_HOLD_MS) {
+            limited.incrementAndGet();
+            return false;
+        }
+
+        ConcurrentHashMap<Integer, Hold> showHolds = holds.computeIfAbsent(showId, id -> new ConcurrentHashMap<>());
+        Set<Integer> requested = new HashSet<>(seatIds);
+        int renewed = 0;
+        for (Integer seatId : requested) {
+            Hold current = showHolds.get(seatId);
+            if (current != null && current.userId == userId) {
+                renewed++;
+            }
+        }
+        // Checked before taking anything; two concurrent requests of one user may both pass
+        if (heldCount(session) - renewed + requested.size() > MAX_SEATS_PER_USER) {
+            limited.incrementAndGet();
+            return false;
+        }
+
+        Hold mine = new Hold(userId, Math.min(now + HOLD_TTL_MS, since + MAX_HOLD_MS));
+        Map<Integer, Hold> replaced = new HashMap<>();
+
+        for (Integer seatId : seatIds) {
+            Hold[] previous = new Hold[1];
+            Hold result = showHolds.compute(seatId, (id, current) -> {
+                if (current == null || current.isExpired(now) || current.userId == userId) {
+                    previous[0] = current;
+                    if (current == null || current.userId != userId) {
+                        if (current != null) {
+                            countHold(sessionKey(showId, current.userId), -1);
+                        }
+                        countHold(session, 1);
+                    }
+                    return mine;
+                }
+                return current;
+            });
+
+            if (result != mine) {
+                // Somebody else holds this seat - undo what we took so far
+                for (Map.Entry<Integer, Hold> entry : replaced.entrySet()) {
+                    Hold before = entry.getValue();
+                    if (before != null && before.userId == userId) {
+                        showHolds.replace(entry.getKey(), mine, before);
+                    } else {
+                        showHolds.computeIfPresent(entry.getKey(), (id, hold) -> {
+                            if (hold != mine) {
+                                return hold;
+                            }
+                            countHold(session, -1);
+                            return null;
+                        });
+                    }
+                }
+                conflicts.incrementAndGet();
+                return false;
+            }
+            replaced.put(seatId, previous[0]);
+        }
+
+        sessions.put(session, since);
+        acquired.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Milliseconds until the first of this user's holds on the given seats runs out (0 if any is not held)
+     */
+    public long getRemainingMs(int showId, int userId, List<Integer> seatIds) {
+        ConcurrentHashMap<Integer, Hold> showHolds = holds.get(showId);
+        if (showHolds == null) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        long remaining = Long.MAX_VALUE;
+        for (Integer seatId : seatIds) {
+            Hold hold = showHolds.get(seatId);
+            if (hold == null || hold.userId != userId || hold.isExpired(now)) {
+                return 0;
+            }
+            remaining = Math.min(remaining, hold.expiresAt - now);
+        }
+        return seatIds.isEmpty() ? 0 : remaining;
+    }
+
+    /**
+     * True if every seat is currently held by this user
+     */
+    public boolean isHeldBy(int showId, int userId, List<Integer> seatIds) {
+        ConcurrentHashMap<Integer, Hold> showHolds = holds.get(showId);
+        if (showHolds == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        for (Integer seatId : seatIds) {
+            Hold hold = showHolds.get(seatId);
+            if (hold == null || hold.userId != userId || hold.isExpired(now)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Seats of a show currently held by users other than this one
+     */
+    public Set<Integer> getSeatsHeldByOthers(int showId, int userId) {
+        Set<Integer> seatIds = new HashSet<>();
+        ConcurrentHashMap<Integer, Hold> showHolds = holds.get(showId);
+        if (showHolds == null) {
+            return seatIds;
+        }
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Integer, Hold> entry : showHolds.entrySet()) {
+            Hold hold = entry.getValue();
+            if (hold.userId != userId && !hold.isExpired(now)) {
+                seatIds.add(entry.getKey());
+            }
+        }
+        return seatIds;
+    }
+
+    /**
+     * Drop this user's holds on the given seats (booking done, payment failed or user changed their mind)
+     */
+    public void release(int showId, int userId, List<Integer> seatIds) {
+        ConcurrentHashMap<Integer, Hold> showHolds = holds.get(showId);
+        if (showHolds == null) {
+            return;
+        }
+        Long session = sessionKey(showId, userId);
+        for (Integer seatId : seatIds) {
+            showHolds.computeIfPresent(seatId, (id, hold) -> {
+                if (hold.userId != userId) {
+                    return hold;
+                }
+                countHold(session, -1);
+                return null;
+            });
+        }
+        // A user who let go of every seat starts over; one who ran out of time stays out until the session lapses
+        Long started = sessions.get(session);
+        if (started != null && System.currentTimeMillis() < started + MAX_HOLD_MS && heldCount(session) == 0) {
+            sessions.remove(session, started);
+        }
+    }
+
+    public int getActiveHoldCount() {
+        int count = 0;
+        for (ConcurrentHashMap<Integer, Hold> showHolds : holds.values()) {
+            count += showHolds.size();
+        }
+        return count;
+    }
+
+    public long getAcquiredCount() { return acquired.get(); }
+    public long getConflictCount() { return conflicts.get(); }
+    public long getLimitedCount() { return limited.get(); }
+    public long getExpiredCount() { return expired.get(); }
+
+    public void shutdown() {
+        reaper.shutdownNow();
+    }
+
+    private void reapExpired() {
+        long now = System.currentTimeMillis();
+
+        // Per-show maps are kept even when empty, so a concurrent hold() never writes into a retired map
+        for (Map.Entry<Integer, ConcurrentHashMap<Integer, Hold>> show : holds.entrySet()) {
+            int showId = show.getKey();
+            ConcurrentHashMap<Integer, Hold> showHolds = show.getValue();
+            for (Map.Entry<Integer, Hold> entry : showHolds.entrySet()) {
+                if (!entry.getValue().isExpired(now)) {
+                    continue;
+                }
+                showHolds.computeIfPresent(entry.getKey(), (id, hold) -> {
+                    if (!hold.isExpired(now)) {
+                        return hold;
+                    }
+                    countHold(sessionKey(showId, hold.userId), -1);
+                    expired.incrementAndGet();
+                    return null;
+                });
+            }
+        }
+        // A session ends when it lapses, or earlier when its holds expired before the maximum was reached
+        for (Map.Entry<Long, Long> entry : sessions.entrySet()) {
+            long started = entry.getValue();
+            boolean holding = heldCount(entry.getKey()) > 0;
+            if (isLapsed(started, now) || (!holding && now < started + MAX_HOLD_MS)) {
+                sessions.remove(entry.getKey(), started);
+            }
+        }
+    }
+
+    private int heldCount(Long session) {
+        Integer count = heldCounts.get(session);
+        return count != null ? count : 0;
+    }
+
+    private void countHold(Long session, int delta) {
+        heldCounts.merge(session, delta, (a, b) -> a + b == 0 ? null : a + b);
+    }
+
+    // Past the maximum hold time plus one hold period of waiting
+    private static boolean isLapsed(long started, long now) {
+        return now >= started + MAX_HOLD_MS + HOLD_TTL_MS;
+    }
+
+    private static Long sessionKey(int showId, int userId) {
+        return ((long) showId << 32) | (userId & 0xFFFFFFFFL);
+    }
+
+    private static class Hold {
+        final int userId;
+        final long expiresAt;
+
+        Hold(int userId, long expiresAt) {
+            this.userId = userId;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
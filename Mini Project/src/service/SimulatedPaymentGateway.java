@@ -0,0 +1,64 @@
+package com.moviebooking.service;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for a real payment provider
+ *
+ * Simulates the provider's response time with a scheduled completion, so no thread
+ * sleeps while a payment is "in flight". Latency and decline rate are configurable.
+ */
+public class SimulatedPaymentGateway implements PaymentGateway {
+
+    private final long latencyMs;
+    private final double failureRate;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param latencyMs   simulated provider response time
+     * @param failureRate share of charges that are declined (0.0 - 1.0)
+     */
+    public SimulatedPaymentGateway(long latencyMs, double failureRate) {
+        this.latencyMs = latencyMs;
+        this.failureRate = failureRate;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "simulated-payment-gateway");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public CompletableFuture<PaymentResult> charge(int userId, double amount) {
+        CompletableFuture<PaymentResult> future = new CompletableFuture<>();
+        String transactionId = "SIM-" + UUID.randomUUID();
+
+        scheduler.schedule(() -> {
+            if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+                future.complete(new PaymentResult(false, transactionId, "Payment declined"));
+            } else {
+                future.complete(new PaymentResult(true, transactionId, "Payment processed: ₹" + amount));
+            }
+        }, latencyMs, TimeUnit.MILLISECONDS);
+
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<PaymentResult> refund(String transactionId, double amount) {
+        CompletableFuture<PaymentResult> future = new CompletableFuture<>();
+        scheduler.schedule(() -> future.complete(new PaymentResult(true, transactionId, "Refunded: ₹" + amount)),
+                latencyMs, TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    @Override
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
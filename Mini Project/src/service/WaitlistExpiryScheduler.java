@@ -0,0 +1,319 @@
+package com.moviebooking.service;
+
+import com.moviebooking.cache.ShowSeatCounters;
+import com.moviebooking.cache.WaitlistQueues;
+import com.moviebooking.dao.WaitlistDAO;
+import com.moviebooking.model.Waitlist;
+import com.moviebooking.util.DBConnection;
+import com.moviebooking.util.Log;
+import com.moviebooking.util.Metrics;
+import com.moviebooking.util.TimingWheel;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Gives seats reserved for notified waitlist users back once the notification expires
+ *
+ * Every notification is tracked in a TimingWheel with one-second ticks from the moment its
+ * promotion commits; notifications already in the database are loaded once at start-up.
+ * Each tick takes the expiries that are due and, per show and in one transaction, marks
+ * the entries that are still notified as Expired, offers their seats to the next users
+ * in the queue (WaitlistPromotionEngine) and commits. The waitlist table is never
+ * swept: the database clock decides whether an entry is really due, and one that is not
+ * (clock skew) is tracked again until its own expiry time.
+ */
+public class WaitlistExpiryScheduler {
+
+    private static final Log log = Log.getLogger(WaitlistExpiryScheduler.class);
+
+    private static final long TICK_MS = 1_000;
+    private static final long RETRY_DELAY_MS = 30_000;
+    // Waitlist ids per transaction, well under Oracle's 1000-expression IN list limit
+    private static final int MAX_BATCH = 500;
+
+    private static final Metrics.Timer LAG_TIMER =
+            Metrics.timer("waitlist_expiry_lag_seconds", "Delay from a waitlist notification's expiry to its release");
+    private static final Metrics.Timer BATCH_TIMER =
+            Metrics.timer("waitlist_expiry_batch_seconds", "One expiry transaction for a show");
+
+    private static final WaitlistExpiryScheduler INSTANCE = new WaitlistExpiryScheduler();
+
+    private final TimingWheel<Expiry> wheel = new TimingWheel<>(TICK_MS, System.currentTimeMillis());
+    private final ScheduledExecutorService ticker;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final WaitlistDAO waitlistDAO = new WaitlistDAO();
+    private final WaitlistPromotionEngine promotionEngine = new WaitlistPromotionEngine();
+
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong promoted = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batchEntries = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile int lastBatchSize;
+
+    private WaitlistExpiryScheduler() {
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "waitlist-expiry");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static WaitlistExpiryScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Load the notifications already pending and start ticking
+     */
+    public void start() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        ticker.execute(this::loadPending);
+        ticker.scheduleWithFixedDelay(this::tickQuietly, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Track notifications that were just committed (they expire after NOTIFICATION_TTL_MINUTES)
+     */
+    public void track(int showId, int[] waitlistIds) {
+        long deadline = System.currentTimeMillis()
+                + TimeUnit.MINUTES.toMillis(WaitlistPromotionEngine.NOTIFICATION_TTL_MINUTES);
+        synchronized (wheel) {
+            for (int waitlistId : waitlistIds) {
+                wheel.add(new Expiry(waitlistId, showId, deadline), deadline);
+            }
+        }
+    }
+
+    public int getTrackedCount() {
+        synchronized (wheel) {
+            return wheel.size();
+        }
+    }
+
+    public long getExpiredCount() { return expired.get(); }
+    public long getPromotedCount() { return promoted.get(); }
+    public long getBatchCount() { return batches.get(); }
+    public long getBatchEntryCount() { return batchEntries.get(); }
+    public long getFailureCount() { return failures.get(); }
+    public int getLastBatchSize() { return lastBatchSize; }
+
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    private void loadPending() {
+        try {
+            List<Waitlist> pending = waitlistDAO.getPendingNotifications();
+            long now = System.currentTimeMillis();
+            synchronized (wheel) {
+                for (Waitlist wl : pending) {
+                    long deadline = wl.getExpiryTime() != null ? wl.getExpiryTime().getTime() : now;
+                    wheel.add(new Expiry(wl.getWaitlistId(), wl.getShowId(), deadline), deadline);
+                }
+            }
+            log.info("waitlist.expiry.loaded", "pending", pending.size());
+        } catch (SQLException e) {
+            log.warn("waitlist.expiry.loadFailed", e, "retryInMs", RETRY_DELAY_MS);
+            ticker.schedule(this::loadPending, RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void tickQuietly() {
+        try {
+            tick();
+        } catch (RuntimeException e) {
+            // Never let an exception cancel the periodic task
+            log.error("waitlist.expiry.tickFailed", e);
+        }
+    }
+
+    private void tick() {
+        List<Expiry> due = new ArrayList<>();
+        synchronized (wheel) {
+            wheel.advance(System.currentTimeMillis(), due::add);
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, List<Expiry>> byShow = new HashMap<>();
+        for (Expiry expiry : due) {
+            byShow.computeIfAbsent(expiry.showId, id -> new ArrayList<>()).add(expiry);
+        }
+        for (Map.Entry<Integer, List<Expiry>> entry : byShow.entrySet()) {
+            List<Expiry> expiries = entry.getValue();
+            for (int from = 0; from < expiries.size(); from += MAX_BATCH) {
+                List<Expiry> batch = expiries.subList(from, Math.min(from + MAX_BATCH, expiries.size()));
+                try {
+                    expireBatch(entry.getKey(), batch);
+                } catch (SQLException e) {
+                    failures.incrementAndGet();
+                    log.warn("waitlist.expiry.batchFailed", e, "showId", entry.getKey(), "entries", batch.size());
+                    retryLater(batch);
+                }
+            }
+        }
+    }
+
+    /**
+     * Expire the due entries of one show and promote the next users, in one transaction
+     */
+    private void expireBatch(int showId, List<Expiry> batch) throws SQLException {
+        long start = System.nanoTime();
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        ShowSeatCounters seatCounters = ShowSeatCounters.getInstance();
+        // Before any row lock, held until the counter has moved
+        Lock promotionLock = seatCounters.promotionLock(showId);
+        promotionLock.lock();
+
+        try {
+            conn = DBConnection.getConnection();
+            conn.setAutoCommit(false);
+
+            // Step 1: Lock the entries that are still notified; the database clock (the one that wrote
+            // expiry_time) decides which are due and how long the others have left
+            String selectSQL = "SELECT waitlist_id, requested_seats, (expiry_time - SYSDATE) * 86400 AS remaining_seconds, " +
+                    "CASE WHEN expiry_time IS NULL OR expiry_time <= SYSDATE THEN 1 ELSE 0 END AS due " +
+                    "FROM waitlist WHERE status = 'Notified' AND waitlist_id IN (" + placeholders(batch.size()) + ") " +
+                    "FOR UPDATE";
+            stmt = conn.prepareStatement(selectSQL);
+            Map<Integer, Expiry> byId = new HashMap<>();
+            for (int i = 0; i < batch.size(); i++) {
+                stmt.setInt(i + 1, batch.get(i).waitlistId);
+                byId.put(batch.get(i).waitlistId, batch.get(i));
+            }
+            rs = stmt.executeQuery();
+
+            List<Integer> dueIds = new ArrayList<>();
+            List<Expiry> notYetDue = new ArrayList<>();
+            long[] lagMs = new long[batch.size()];
+            int releasedSeats = 0;
+            long now = System.currentTimeMillis();
+            while (rs.next()) {
+                int waitlistId = rs.getInt("waitlist_id");
+                if (rs.getInt("due") == 1) {
+                    lagMs[dueIds.size()] = Math.max(0, now - byId.get(waitlistId).deadlineMs);
+                    dueIds.add(waitlistId);
+                    releasedSeats += rs.getInt("requested_seats");
+                } else {
+                    long remainingMs = (long) Math.ceil(rs.getDouble("remaining_seconds") * 1000);
+                    notYetDue.add(new Expiry(waitlistId, showId, now + remainingMs));
+                }
+            }
+            rs.close();
+            stmt.close();
+
+            // Step 2: Expire them
+            if (!dueIds.isEmpty()) {
+                String expireSQL = "UPDATE waitlist SET status = 'Expired' WHERE waitlist_id IN (" +
+                        placeholders(dueIds.size()) + ")";
+                stmt = conn.prepareStatement(expireSQL);
+                for (int i = 0; i < dueIds.size(); i++) {
+                    stmt.setInt(i + 1, dueIds.get(i));
+                }
+                stmt.executeUpdate();
+                stmt.close();
+            }
+
+            // Step 3: Offer the released seats to the next users in the queue
+            WaitlistPromotionEngine.Result promotion = releasedSeats > 0
+                    ? promotionEngine.promote(conn, showId, seatCounters.getAvailable(showId) + releasedSeats)
+                    : WaitlistPromotionEngine.Result.NONE;
+
+            // Step 4: Commit, then move the live counter, dequeue and track the new notifications
+            conn.commit();
+            seatCounters.add(showId, releasedSeats - promotion.getReservedSeats());
+            WaitlistQueues.getInstance().removeAll(showId, promotion.getPromotedIds());
+            track(showId, promotion.getPromotedIds());
+            synchronized (wheel) {
+                for (Expiry expiry : notYetDue) {
+                    wheel.add(expiry, expiry.deadlineMs);
+                }
+            }
+
+            for (int i = 0; i < dueIds.size(); i++) {
+                LAG_TIMER.record(TimeUnit.MILLISECONDS.toNanos(lagMs[i]));
+            }
+            expired.addAndGet(dueIds.size());
+            promoted.addAndGet(promotion.getPromotedUsers());
+            batches.incrementAndGet();
+            batchEntries.addAndGet(batch.size());
+            lastBatchSize = batch.size();
+
+            if (!dueIds.isEmpty()) {
+                log.info("waitlist.expiry.released", "showId", showId, "expired", dueIds.size(),
+                        "seats", releasedSeats, "promoted", promotion.getPromotedUsers());
+            }
+
+        } catch (SQLException e) {
+            if (conn != null) conn.rollback();
+            throw e;
+        } finally {
+            promotionLock.unlock();
+            BATCH_TIMER.recordSince(start);
+            try {
+                if (rs != null) rs.close();
+                if (stmt != null) stmt.close();
+                if (conn != null) conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                log.warn("waitlist.expiry.closeFailed", e);
+            } finally {
+                // Closed even if the cleanup above failed, the pool resets auto-commit on return
+                if (conn != null) {
+                    try {
+                        conn.close();
+                    } catch (SQLException e) {
+                        log.warn("waitlist.expiry.closeFailed", e);
+                    }
+                }
+            }
+        }
+    }
+
+    private void retryLater(List<Expiry> batch) {
+        long retryAt = System.currentTimeMillis() + RETRY_DELAY_MS;
+        synchronized (wheel) {
+            for (Expiry expiry : batch) {
+                wheel.add(expiry, retryAt);
+            }
+        }
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(',');
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+
+    private static final class Expiry {
+        final int waitlistId;
+        final int showId;
+        final long deadlineMs;
+
+        Expiry(int waitlistId, int showId, long deadlineMs) {
+            this.waitlistId = waitlistId;
+            this.showId = showId;
+            this.deadlineMs = deadlineMs;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.moviebooking.service;
+
+import com.moviebooking.cache.WaitlistQueues;
+import com.moviebooking.util.Log;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Promotes waitlisted users when seats of a show free up
+ *
+ * Walks the show's queue (WaitlistQueues: priority, then join time) and notifies every user
+ * whose request still fits in the seats left (a request that does not fit is skipped, later
+ * smaller ones can still be served). The plan is read from the resident queue, its rows are
+ * locked to confirm they are still waiting, and it is applied with one batched waitlist
+ * update. Runs inside the caller's transaction; once it has committed, the caller takes the
+ * reserved seats off the live seat counter and the promoted entries out of the queue.
+ */
+public class WaitlistPromotionEngine {
+
+    private static final Log log = Log.getLogger(WaitlistPromotionEngine.class);
+
+    // How long a notified user's seats stay reserved
+    public static final int NOTIFICATION_TTL_MINUTES = 15;
+
+    private static final int BATCH_SIZE = 500;
+    // Oracle rejects IN lists with more than 1000 expressions
+    private static final int MAX_IN_LIST = 1000;
+
+    /**
+     * Notify eligible waitlist users of a show given the seats it has free
+     */
+    public Result promote(Connection conn, int showId, int availableSeats) throws SQLException {
+        if (availableSeats <= 0) {
+            return Result.NONE;
+        }
+
+        // Re-plan until every planned entry is confirmed; each round drops at least one stale entry
+        WaitlistQueues queues = WaitlistQueues.getInstance();
+        List<WaitlistQueues.Entry> plan = queues.plan(showId, availableSeats);
+        Set<Integer> stale = lockWaiting(conn, plan);
+        while (!stale.isEmpty()) {
+            int[] staleIds = new int[stale.size()];
+            int i = 0;
+            for (Integer waitlistId : stale) {
+                staleIds[i++] = waitlistId;
+            }
+            log.info("waitlist.promotion.stale", "showId", showId, "entries", staleIds.length);
+            queues.removeAll(showId, staleIds);
+            plan = queues.plan(showId, availableSeats);
+            stale = lockWaiting(conn, plan);
+        }
+
+        int promoted = plan.size();
+        int[] promotedIds = new int[promoted];
+        int reservedSeats = 0;
+        for (int i = 0; i < promoted; i++) {
+            promotedIds[i] = plan.get(i).getWaitlistId();
+            reservedSeats += plan.get(i).getRequestedSeats();
+        }
+
+        if (promoted == 0) {
+            return Result.NONE;
+        }
+
+        notifyPromoted(conn, promotedIds, promoted);
+
+        log.info("waitlist.promoted", "showId", showId, "notified", promoted,
+                "reservedSeats", reservedSeats, "availableSeats", availableSeats);
+        return new Result(promotedIds, reservedSeats);
+    }
+
+    /**
+     * Lock the planned rows and return the ones that are no longer waiting
+     * (their status changed in a transaction the resident queue has not seen yet)
+     */
+    private Set<Integer> lockWaiting(Connection conn, List<WaitlistQueues.Entry> plan) throws SQLException {
+        Set<Integer> stale = new HashSet<>();
+        for (WaitlistQueues.Entry entry : plan) {
+            stale.add(entry.getWaitlistId());
+        }
+        for (int from = 0; from < plan.size(); from += MAX_IN_LIST) {
+            List<WaitlistQueues.Entry> chunk = plan.subList(from, Math.min(from + MAX_IN_LIST, plan.size()));
+            StringBuilder placeholders = new StringBuilder();
+            for (int i = 0; i < chunk.size(); i++) {
+                placeholders.append(i == 0 ? "?" : ",?");
+            }
+            String lockSQL = "SELECT waitlist_id FROM waitlist WHERE status = 'Waiting' AND waitlist_id IN (" +
+                    placeholders + ") FOR UPDATE";
+            PreparedStatement stmt = conn.prepareStatement(lockSQL);
+            ResultSet rs = null;
+            try {
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setInt(i + 1, chunk.get(i).getWaitlistId());
+                }
+                rs = stmt.executeQuery();
+                while (rs.next()) {
+                    stale.remove(rs.getInt("waitlist_id"));
+                }
+            } finally {
+                if (rs != null) rs.close();
+                stmt.close();
+            }
+        }
+        return stale;
+    }
+
+    private void notifyPromoted(Connection conn, int[] waitlistIds, int count) throws SQLException {
+        String notifySQL = "UPDATE waitlist SET status = 'Notified', notification_sent = 'Y', " +
+                "expiry_time = SYSDATE + INTERVAL '" + NOTIFICATION_TTL_MINUTES + "' MINUTE WHERE waitlist_id = ?";
+        PreparedStatement stmt = conn.prepareStatement(notifySQL);
+        try {
+            for (int i = 0; i < count; i++) {
+                stmt.setInt(1, waitlistIds[i]);
+                stmt.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0 || i == count - 1) {
+                    checkBatch(stmt.executeBatch());
+                }
+            }
+        } finally {
+            stmt.close();
+        }
+    }
+
+    private void checkBatch(int[] results) throws SQLException {
+        for (int result : results) {
+            if (result == Statement.EXECUTE_FAILED) {
+                throw new SQLException("Waitlist notification failed, aborting promotion");
+            }
+        }
+    }
+
+    /**
+     * Outcome of one promotion run
+     */
+    public static class Result {
+        static final Result NONE = new Result(new int[0], 0);
+
+        private final int[] promotedIds;
+        private final int reservedSeats;
+
+        public Result(int[] promotedIds, int reservedSeats) {
+            this.promotedIds = promotedIds;
+            this.reservedSeats = reservedSeats;
+        }
+
+        public int getPromotedUsers() { return promotedIds.length; }
+        public int getReservedSeats() { return reservedSeats; }
+
+        /**
+         * Waitlist ids that were notified (their reservation expires after NOTIFICATION_TTL_MINUTES)
+         */
+        public int[] getPromotedIds() { return promotedIds.clone(); }
+    }
+}
@@ -0,0 +1,57 @@
+package com.moviebooking.servlet;
+
+import com.moviebooking.cache.ShowSeatCounters;
+import com.moviebooking.cache.WaitlistQueues;
+import com.moviebooking.search.SeatSearchEngine;
+import com.moviebooking.service.Payments;
+import com.moviebooking.service.SeatEventPublisher;
+import com.moviebooking.service.SeatHoldService;
+import com.moviebooking.service.WaitlistExpiryScheduler;
+import com.moviebooking.util.AsyncLogAppender;
+import com.moviebooking.util.DBConnection;
+import com.moviebooking.util.Log;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.annotation.WebListener;
+import java.sql.SQLException;
+
+/**
+ * Application lifecycle hooks
+ * Loads the waitlist queues and starts the waitlist expiry scheduler, and releases shared
+ * resources (connection pool, payment gateway, seat-hold reaper, waitlist expiry scheduler,
+ * seat-counter flusher, waitlist writer, seat-search pool, seat event streams, log writer)
+ * when the web app is stopped
+ */
+@WebListener
+public class AppContextListener implements ServletContextListener {
+
+    private static final Log log = Log.getLogger(AppContextListener.class);
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        try {
+            WaitlistQueues.getInstance().loadAll();
+        } catch (SQLException e) {
+            // Not fatal: each show's queue is loaded on first use instead
+            log.warn("app.waitlistQueues.loadFailed", e);
+        }
+        WaitlistExpiryScheduler.getInstance().start();
+        log.info("app.started");
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        Payments.shutdown();
+        SeatHoldService.getInstance().shutdown();
+        WaitlistExpiryScheduler.getInstance().shutdown();
+        SeatSearchEngine.getInstance().shutdown();
+        SeatEventPublisher.getInstance().shutdown();
+        // Last write-behind flush needs the pool, so it runs before the pool closes
+        ShowSeatCounters.getInstance().shutdown();
+        WaitlistQueues.getInstance().shutdown();
+        DBConnection.shutdown();
+        log.info("app.stopped");
+        // Last, so that everything logged during shutdown is written out
+        AsyncLogAppender.getInstance().shutdown();
+    }
+}
@@ -1,19 +1,29 @@
 package com.moviebooking.servlet;
 
-import com.moviebooking.dao.*;
+import com.moviebooking.model.Seat;
 import com.moviebooking.model.User;
+import com.moviebooking.service.BookingService;
+import com.moviebooking.service.OptimisticBookingService;
+import com.moviebooking.service.SeatHoldService;
+import com.moviebooking.util.Metrics;
 import jakarta.servlet.*;
 import jakarta.servlet.http.*;
 import jakarta.servlet.annotation.WebServlet;
 import java.io.IOException;
-import java.sql.*;
+import java.sql.SQLException;
 import java.util.*;
 
 @WebServlet("/BookingServlet")
 public class BookingServlet extends HttpServlet {
 
+    private static final Metrics.Timer DIRECT_TIMER =
+            Metrics.timer("booking_request_seconds", "Booking request latency, end to end", "path", "direct");
+    private static final Metrics.Timer OPTIMISTIC_TIMER =
+            Metrics.timer("booking_request_seconds", "Booking request latency, end to end", "path", "optimistic");
+
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
+        long start = System.nanoTime();
         HttpSession session = request.getSession();
         User user = (User) session.getAttribute("user");
 
@@ -37,132 +47,83 @@ public class BookingServlet extends HttpServlet {
             seatIdList.add(Integer.parseInt(id.trim()));
         }
 
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-
-        try {
-            conn = com.moviebooking.util.DBConnection.getConnection();
-            conn.setAutoCommit(false);
-
-            // Get show price
-            String priceQuery = "SELECT price FROM shows WHERE show_id = ?";
-            stmt = conn.prepareStatement(priceQuery);
-            stmt.setInt(1, showId);
-            rs = stmt.executeQuery();
-
-            double price = 0;
-            if (rs.next()) {
-                price = rs.getDouble("price");
-            }
-            rs.close();
-            stmt.close();
-
-            double totalAmount = price * seatIdList.size();
-
-            // Create booking
-            String bookingSql = "INSERT INTO bookings (booking_id, user_id, show_id, total_amount, payment_status, booking_status) " +
-                    "VALUES (booking_seq.NEXTVAL, ?, ?, ?, 'Completed', 'Active')";
-            stmt = conn.prepareStatement(bookingSql, new String[]{"booking_id"});
-            stmt.setInt(1, user.getUserId());
-            stmt.setInt(2, showId);
-            stmt.setDouble(3, totalAmount);
-            stmt.executeUpdate();
-
-            // Get generated booking ID
-            rs = stmt.getGeneratedKeys();
-            int bookingId = 0;
-            if (rs.next()) {
-                bookingId = rs.getInt(1);
+        if (OptimisticBookingService.isEnabled()) {
+            try {
+                bookOptimistically(request, response, user, showId, movieId, seatIdList);
+            } finally {
+                OPTIMISTIC_TIMER.recordSince(start);
             }
-            rs.close();
-            stmt.close();
+            return;
+        }
 
-            // Book seats
-            SeatDAO seatDAO = new SeatDAO();
-            boolean seatsBooked = seatDAO.bookSeats(seatIdList, bookingId);
+        BookingService bookingService = BookingService.getInstance();
+        SeatHoldService seatHolds = SeatHoldService.getInstance();
 
-            if (!seatsBooked) {
-                conn.rollback();
+        try {
+            if (!seatHolds.hold(showId, user.getUserId(), seatIdList)) {
                 response.sendRedirect("ShowServlet?movieId=" + movieId + "&error=bookingFailed");
                 return;
             }
 
-            // Update available seats count
-            String updateShowSql = "UPDATE shows SET available_seats = available_seats - ? WHERE show_id = ?";
-            stmt = conn.prepareStatement(updateShowSql);
-            stmt.setInt(1, seatIdList.size());
-            stmt.setInt(2, showId);
-            stmt.executeUpdate();
-            stmt.close();
-
-            // Remove user from waitlist if they were waiting
-            String removeWaitlistSql = "UPDATE waitlist SET status = 'Fulfilled' WHERE user_id = ? AND show_id = ? AND status IN ('Waiting', 'Notified')";
-            stmt = conn.prepareStatement(removeWaitlistSql);
-            stmt.setInt(1, user.getUserId());
-            stmt.setInt(2, showId);
-            stmt.executeUpdate();
-            stmt.close();
-
-            conn.commit();
-
-            // Prepare ticket data
-            Map<String, Object> bookingData = new HashMap<>();
-            MovieDAO movieDAO = new MovieDAO();
-            bookingData.put("movie", movieDAO.getMovieById(movieId));
-
-            // Get show time
-            String showTimeQuery = "SELECT TO_CHAR(show_date, 'DD Mon YYYY') || ' ' || show_time as full_time FROM shows WHERE show_id = ?";
-            stmt = conn.prepareStatement(showTimeQuery);
-            stmt.setInt(1, showId);
-            rs = stmt.executeQuery();
-            if (rs.next()) {
-                bookingData.put("showTime", rs.getString("full_time"));
-            }
-            rs.close();
-            stmt.close();
-
-            // Get seat labels
-            List<String> seatLabels = new ArrayList<>();
-            for (Integer seatId : seatIdList) {
-                String seatQuery = "SELECT seat_row || seat_number as seat_label FROM seats WHERE seat_id = ?";
-                stmt = conn.prepareStatement(seatQuery);
-                stmt.setInt(1, seatId);
-                rs = stmt.executeQuery();
-                if (rs.next()) {
-                    seatLabels.add(rs.getString("seat_label"));
-                }
-                rs.close();
-                stmt.close();
-            }
+            double totalAmount = bookingService.quote(showId, seatIdList.size());
+            int bookingId = bookingService.createBooking(user.getUserId(), showId, seatIdList, totalAmount);
 
-            bookingData.put("seatLabels", seatLabels);
-            bookingData.put("totalAmount", totalAmount);
-            bookingData.put("bookingId", bookingId);
-            bookingData.put("bookingDate", new java.text.SimpleDateFormat("dd MMM yyyy HH:mm").format(new java.util.Date()));
+            if (bookingId <= 0) {
+                response.sendRedirect("ShowServlet?movieId=" + movieId + "&error=bookingFailed");
+                return;
+            }
 
+            Map<String, Object> bookingData = bookingService.buildTicket(bookingId, movieId, showId, seatIdList, totalAmount);
             request.setAttribute("bookingData", bookingData);
             request.getRequestDispatcher("ticket.jsp").forward(request, response);
 
         } catch (SQLException e) {
-            try {
-                if (conn != null) conn.rollback();
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
             e.printStackTrace();
             response.sendRedirect("ShowServlet?movieId=" + movieId + "&error=database");
         } finally {
-            try {
-                if (conn != null) {
-                    conn.setAutoCommit(true);
-                    conn.close();
+            seatHolds.release(showId, user.getUserId(), seatIdList);
+            DIRECT_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Optimistic mode: no hold, one short claim transaction with retry, nearby seats offered on conflict
+     */
+    private void bookOptimistically(HttpServletRequest request, HttpServletResponse response, User user,
+                                    int showId, int movieId, List<Integer> seatIdList)
+            throws ServletException, IOException {
+        BookingService bookingService = BookingService.getInstance();
+        try {
+            double totalAmount = bookingService.quote(showId, seatIdList.size());
+
+            OptimisticBookingService.Outcome outcome =
+                    new OptimisticBookingService().book(user.getUserId(), showId, seatIdList, totalAmount);
+
+            if (outcome.getStatus() == OptimisticBookingService.Outcome.Status.CONFLICT) {
+                // Pre-select the closest free seats of the same size, if any
+                StringBuilder redirect = new StringBuilder("ShowServlet?movieId=" + movieId + "&showId=" + showId + "&error=seatsTaken");
+                if (!outcome.getAlternatives().isEmpty()) {
+                    StringJoiner suggested = new StringJoiner(",");
+                    for (Seat seat : outcome.getAlternatives().get(0).getSeats()) {
+                        suggested.add(String.valueOf(seat.getSeatId()));
+                    }
+                    redirect.append("&suggestedSeats=").append(suggested);
                 }
-                if (stmt != null) stmt.close();
-                if (rs != null) rs.close();
-            } catch (SQLException e) {
-                e.printStackTrace();
+                response.sendRedirect(redirect.toString());
+                return;
+            }
+            if (!outcome.isBooked()) {
+                response.sendRedirect("ShowServlet?movieId=" + movieId + "&error=bookingFailed");
+                return;
             }
+
+            Map<String, Object> bookingData = bookingService.buildTicket(outcome.getBookingId(), movieId, showId, seatIdList, totalAmount);
+            request.setAttribute("bookingData", bookingData);
+            request.getRequestDispatcher("ticket.jsp").forward(request, response);
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            response.sendRedirect("ShowServlet?movieId=" + movieId + "&error=database");
         }
     }
 
@@ -3,15 +3,22 @@ package com.moviebooking.servlet;
 import com.moviebooking.dao.AdvancedSeatSearchDAO;
 import com.moviebooking.dao.AdvancedSeatSearchDAO.SeatArrangement;
 import com.moviebooking.model.User;
+import com.moviebooking.service.SeatHoldService;
+import com.moviebooking.util.Log;
 import jakarta.servlet.*;
 import jakarta.servlet.http.*;
 import jakarta.servlet.annotation.WebServlet;
 import java.io.IOException;
 import java.util.List;
+import java.util.Set;
 
 @WebServlet("/GroupSeatSearchServlet")
 public class GroupSeatSearchServlet extends HttpServlet {
 
+    private static final Log log = Log.getLogger(GroupSeatSearchServlet.class);
+
+    private static final int MAX_RESULTS_CAP = 20;
+
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
         HttpSession session = request.getSession();
@@ -26,21 +33,21 @@ public class GroupSeatSearchServlet extends HttpServlet {
             int showId = Integer.parseInt(request.getParameter("showId"));
             int groupSize = Integer.parseInt(request.getParameter("groupSize"));
             int movieId = Integer.parseInt(request.getParameter("movieId"));
+            String maxResultsParam = request.getParameter("maxResults");
+            int maxResults = maxResultsParam == null ? AdvancedSeatSearchDAO.DEFAULT_RESULT_LIMIT
+                    : Math.max(1, Math.min(MAX_RESULTS_CAP, Integer.parseInt(maxResultsParam)));
 
-            System.out.println("========================================");
-            System.out.println("GROUP SEAT SEARCH REQUEST");
-            System.out.println("User: " + user.getFullName());
-            System.out.println("Movie ID: " + movieId);
-            System.out.println("Show ID: " + showId);
-            System.out.println("Group Size: " + groupSize);
-            System.out.println("========================================");
+            log.debug("groupSearch.requested", "userId", user.getUserId(), "movieId", movieId,
+                    "showId", showId, "groupSize", groupSize);
 
-            // Search for all best seat arrangements
+            // Search for all best seat arrangements, seats another user is holding while they pay count as taken
+            Set<Integer> heldByOthers = SeatHoldService.getInstance().getSeatsHeldByOthers(showId, user.getUserId());
             AdvancedSeatSearchDAO seatSearchDAO = new AdvancedSeatSearchDAO();
-            List<AdvancedSeatSearchDAO.SeatArrangement> arrangements = seatSearchDAO.findAllBestSeatsForGroup(showId, groupSize);
+            List<AdvancedSeatSearchDAO.SeatArrangement> arrangements =
+                    seatSearchDAO.findAllBestSeatsForGroup(showId, groupSize, maxResults, heldByOthers);
 
-            if (arrangements != null && !arrangements.isEmpty()) {
-                System.out.println("✓ Found " + arrangements.size() + " arrangement(s)");
+            if (!arrangements.isEmpty()) {
+                log.debug("groupSearch.found", "showId", showId, "groupSize", groupSize, "arrangements", arrangements.size());
 
                 request.setAttribute("arrangements", arrangements);
                 request.setAttribute("showId", showId);
@@ -49,13 +56,12 @@ public class GroupSeatSearchServlet extends HttpServlet {
 
                 request.getRequestDispatcher("group_booking_options.jsp").forward(request, response);
             } else {
-                System.out.println("❌ No suitable arrangements found");
+                log.info("groupSearch.none", "showId", showId, "groupSize", groupSize);
                 response.sendRedirect("ShowServlet?movieId=" + movieId + "&error=noSeatsFound");
             }
 
         } catch (NumberFormatException e) {
-            System.out.println("❌ Invalid parameters: " + e.getMessage());
-            e.printStackTrace();
+            log.warn("groupSearch.invalidParameters", "error", e.getMessage());
             response.sendRedirect("ShowServlet?error=invalid");
         }
     }
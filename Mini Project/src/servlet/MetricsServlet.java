@@ -0,0 +1,104 @@
+package com.moviebooking.servlet;
+
+import com.moviebooking.cache.MovieCatalogCache;
+import com.moviebooking.cache.MovieSearchIndex;
+import com.moviebooking.cache.ShowScheduleCache;
+import com.moviebooking.cache.ShowSeatCounters;
+import com.moviebooking.cache.WaitlistQueues;
+import com.moviebooking.service.BookingService;
+import com.moviebooking.service.SeatEventPublisher;
+import com.moviebooking.service.SeatHoldService;
+import com.moviebooking.service.WaitlistExpiryScheduler;
+import com.moviebooking.util.AsyncLogAppender;
+import com.moviebooking.util.DBConnection;
+import com.moviebooking.util.Metrics;
+import jakarta.servlet.*;
+import jakarta.servlet.http.*;
+import jakarta.servlet.annotation.WebServlet;
+import java.io.IOException;
+
+/**
+ * Prometheus scrape endpoint
+ * Timers and counters are recorded where the work happens; the counters the pool, caches,
+ * seat holds, seat counters, booking engine, seat event streams and log appender already
+ * keep are read here at scrape time.
+ */
+@WebServlet("/metrics")
+public class MetricsServlet extends HttpServlet {
+
+    @Override
+    public void init() throws ServletException {
+        Metrics.gauge("db_pool_connections", "Pooled connections by state", () -> DBConnection.getPoolStats().getActive(), "state", "active");
+        Metrics.gauge("db_pool_connections", "Pooled connections by state", () -> DBConnection.getPoolStats().getIdle(), "state", "idle");
+        Metrics.gauge("db_pool_waiters", "Threads waiting for a connection", () -> DBConnection.getPoolStats().getWaiters());
+        Metrics.gauge("db_pool_max_connections", "Pool size limit", () -> DBConnection.getPoolStats().getMaxSize());
+        Metrics.counterOf("db_pool_borrow_timeouts_total", "Borrows that timed out", () -> DBConnection.getPoolStats().getTimeouts());
+        Metrics.counterOf("db_statement_cache_total", "Prepared statement cache lookups", () -> DBConnection.getPoolStats().getStatementCacheHits(), "result", "hit");
+        Metrics.counterOf("db_statement_cache_total", "Prepared statement cache lookups", () -> DBConnection.getPoolStats().getStatementCacheMisses(), "result", "miss");
+
+        MovieCatalogCache catalog = MovieCatalogCache.getInstance();
+        Metrics.counterOf("cache_requests_total", "Cache lookups", catalog::getHits, "cache", "movies", "result", "hit");
+        Metrics.counterOf("cache_requests_total", "Cache lookups", catalog::getMisses, "cache", "movies", "result", "miss");
+        Metrics.counterOf("cache_evictions_total", "Entries evicted to stay within the size limit", catalog::getEvictions, "cache", "movies");
+        Metrics.gauge("cache_entries", "Entries currently cached", catalog::getSize, "cache", "movies");
+
+        ShowScheduleCache schedule = ShowScheduleCache.getInstance();
+        Metrics.counterOf("cache_requests_total", "Cache lookups", schedule::getHits, "cache", "shows", "result", "hit");
+        Metrics.counterOf("cache_requests_total", "Cache lookups", schedule::getMisses, "cache", "shows", "result", "miss");
+        Metrics.gauge("cache_entries", "Entries currently cached", schedule::getSize, "cache", "shows");
+
+        Metrics.gauge("cache_entries", "Entries currently cached", MovieSearchIndex.getInstance()::getIndexedCount, "cache", "search");
+
+        SeatHoldService holds = SeatHoldService.getInstance();
+        Metrics.gauge("seat_holds_active", "Seat holds not yet released or expired", holds::getActiveHoldCount);
+        Metrics.counterOf("seat_holds_total", "Seat hold attempts", holds::getAcquiredCount, "result", "acquired");
+        Metrics.counterOf("seat_holds_total", "Seat hold attempts", holds::getConflictCount, "result", "conflict");
+        Metrics.counterOf("seat_holds_total", "Seat hold attempts", holds::getLimitedCount, "result", "limited");
+        Metrics.counterOf("seat_holds_total", "Seat hold attempts", holds::getExpiredCount, "result", "expired");
+
+        ShowSeatCounters counters = ShowSeatCounters.getInstance();
+        Metrics.gauge("seat_counters_tracked", "Shows with a live seat counter", counters::getTrackedShows);
+        Metrics.counterOf("seat_counter_flushes_total", "Write-behind flushes", counters::getFlushCount);
+        Metrics.counterOf("seat_counter_flush_failures_total", "Write-behind flushes that failed", counters::getFlushFailures);
+
+        BookingService bookings = BookingService.getInstance();
+        Metrics.counterOf("bookings_total", "Booking attempts by outcome", bookings::getBookingCount, "result", "booked");
+        Metrics.counterOf("bookings_total", "Booking attempts by outcome", bookings::getConflictCount, "result", "conflict");
+        Metrics.counterOf("bookings_total", "Booking attempts by outcome", bookings::getFailureCount, "result", "failed");
+        Metrics.counterOf("booking_retries_total", "Booking transactions retried after a transient error", bookings::getRetryCount);
+
+        WaitlistExpiryScheduler expiries = WaitlistExpiryScheduler.getInstance();
+        Metrics.gauge("waitlist_expiry_tracked", "Waitlist notifications waiting to expire", expiries::getTrackedCount);
+        Metrics.gauge("waitlist_expiry_last_batch_entries", "Entries in the last expiry batch", expiries::getLastBatchSize);
+        Metrics.counterOf("waitlist_expiry_batches_total", "Expiry transactions run", expiries::getBatchCount);
+        Metrics.counterOf("waitlist_expiry_batch_entries_total", "Entries handled by expiry transactions", expiries::getBatchEntryCount);
+        Metrics.counterOf("waitlist_expiry_failures_total", "Expiry transactions that failed and were retried", expiries::getFailureCount);
+        Metrics.counterOf("waitlist_entries_total", "Waitlist entries changed by the expiry scheduler", expiries::getExpiredCount, "result", "expired");
+        Metrics.counterOf("waitlist_entries_total", "Waitlist entries changed by the expiry scheduler", expiries::getPromotedCount, "result", "promoted");
+
+        WaitlistQueues waitlistQueues = WaitlistQueues.getInstance();
+        Metrics.gauge("waitlist_queue_shows", "Shows with a resident waitlist queue", waitlistQueues::getLoadedShows);
+        Metrics.gauge("waitlist_queue_entries", "Waiting entries in the resident queues", waitlistQueues::getQueuedEntries);
+        Metrics.gauge("waitlist_queue_pending_writes", "Queue removals not yet written to the waitlist table", waitlistQueues::getPendingWrites);
+        Metrics.counterOf("waitlist_queue_loads_total", "Show queues read from the waitlist table", waitlistQueues::getLoadCount);
+        Metrics.counterOf("waitlist_queue_writes_total", "Write-behind runs of the waitlist writer", waitlistQueues::getWriteCount);
+        Metrics.counterOf("waitlist_queue_write_failures_total", "Waitlist writer runs that failed", waitlistQueues::getWriteFailures);
+
+        SeatEventPublisher seatEvents = SeatEventPublisher.getInstance();
+        Metrics.gauge("seat_stream_subscribers", "Open seat-map event streams", seatEvents::getSubscriberCount);
+        Metrics.counterOf("seat_stream_events_total", "Seat-map events fanned out", seatEvents::getPublishedCount);
+        Metrics.counterOf("seat_stream_slow_disconnects_total", "Streams closed because the client fell behind", seatEvents::getSlowDisconnectCount);
+
+        AsyncLogAppender appender = AsyncLogAppender.getInstance();
+        Metrics.gauge("log_queue_records", "Log records waiting for the writer", appender::getQueuedCount);
+        Metrics.counterOf("log_records_dropped_total", "Log records dropped because the buffer was full", appender::getDroppedCount);
+    }
+
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setContentType("text/plain; version=0.0.4");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+        Metrics.writeTo(response.getWriter());
+    }
+}
@@ -1,20 +1,64 @@
 package com.moviebooking.servlet;
 
-import com.moviebooking.dao.*;
 import com.moviebooking.model.User;
-import com.moviebooking.model.Seat;
+import com.moviebooking.service.BookingService;
+import com.moviebooking.service.PaymentGateway;
+import com.moviebooking.service.PaymentGateway.PaymentResult;
+import com.moviebooking.service.Payments;
+import com.moviebooking.service.SeatHoldService;
+import com.moviebooking.util.Log;
+import com.moviebooking.util.Metrics;
 import jakarta.servlet.*;
 import jakarta.servlet.http.*;
 import jakarta.servlet.annotation.WebServlet;
 import java.io.IOException;
-import java.sql.*;
+import java.sql.SQLException;
 import java.util.*;
-
-@WebServlet("/PaymentServlet")
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Payment + booking flow
+ *
+ * The payment gateway call runs asynchronously (Servlet async mode): the container
+ * thread is released while the provider works and no database connection is open
+ * during the payment. The booking transaction runs on the completion callback.
+ */
+@WebServlet(urlPatterns = "/PaymentServlet", asyncSupported = true)
 public class PaymentServlet extends HttpServlet {
 
+    private static final Log log = Log.getLogger(PaymentServlet.class);
+
+    private static final Metrics.Timer PAYMENT_TIMER =
+            Metrics.timer("payment_gateway_seconds", "Time from charge request to payment outcome");
+    private static final Metrics.Timer REQUEST_TIMER =
+            Metrics.timer("booking_request_seconds", "Booking request latency, end to end", "path", "payment");
+
+    private static final long ASYNC_TIMEOUT_MS = 30_000;
+    private static final int COMPLETION_THREADS = 8;
+
+    // Runs the booking transactions once payments come back (bounded, like the connection pool)
+    private ExecutorService completionExecutor;
+
+    @Override
+    public void init() throws ServletException {
+        completionExecutor = Executors.newFixedThreadPool(COMPLETION_THREADS, r -> {
+            Thread t = new Thread(r, "payment-completion");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public void destroy() {
+        completionExecutor.shutdown();
+    }
+
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
+        long requestStart = System.nanoTime();
         HttpSession session = request.getSession();
         User user = (User) session.getAttribute("user");
 
@@ -23,296 +67,212 @@ public class PaymentServlet extends HttpServlet {
             return;
         }
 
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
+        int showId;
+        int movieId;
+        List<Integer> seatIdList = new ArrayList<>();
 
         try {
-            conn = com.moviebooking.util.DBConnection.getConnection();
-            conn.setAutoCommit(false);
-
             // ===== STEP 1: Parse form data =====
-            int showId = Integer.parseInt(request.getParameter("showId"));
-            int movieId = Integer.parseInt(request.getParameter("movieId"));
+            showId = Integer.parseInt(request.getParameter("showId"));
+            movieId = Integer.parseInt(request.getParameter("movieId"));
             String selectedSeatsStr = request.getParameter("selectedSeats");
 
-            System.out.println("========================================");
-            System.out.println("BOOKING PROCESS STARTED");
-            System.out.println("User: " + user.getFullName() + " (ID: " + user.getUserId() + ")");
-            System.out.println("Show ID: " + showId);
-            System.out.println("Movie ID: " + movieId);
-            System.out.println("Selected Seats (IDs): " + selectedSeatsStr);
-            System.out.println("========================================");
+            log.debug("payment.started", "userId", user.getUserId(), "showId", showId, "movieId", movieId,
+                    "seatIds", selectedSeatsStr);
 
             if (selectedSeatsStr == null || selectedSeatsStr.isEmpty()) {
-                System.out.println("❌ ERROR: No seats selected");
+                log.info("payment.rejected", "userId", user.getUserId(), "reason", "noSeats");
                 response.sendRedirect("ShowServlet?movieId=" + movieId + "&error=noSeats");
                 return;
             }
 
-            String[] seatIds = selectedSeatsStr.split(",");
-            List<Integer> seatIdList = new ArrayList<>();
-            for (String id : seatIds) {
+            for (String id : selectedSeatsStr.split(",")) {
                 seatIdList.add(Integer.parseInt(id.trim()));
             }
+        } catch (NumberFormatException e) {
+            log.warn("payment.invalidParameters", "userId", user.getUserId(), "error", e.getMessage());
+            response.sendRedirect("HomeServlet?error=invalid");
+            return;
+        }
 
-            System.out.println("Total seats selected: " + seatIdList.size());
-
-            // ===== STEP 2: Get show price =====
-            String priceQuery = "SELECT price FROM shows WHERE show_id = ?";
-            stmt = conn.prepareStatement(priceQuery);
-            stmt.setInt(1, showId);
-            rs = stmt.executeQuery();
-
-            double price = 0;
-            if (rs.next()) {
-                price = rs.getDouble("price");
-            }
-            rs.close();
-            stmt.close();
-
-            System.out.println("Price per seat: ₹" + price);
-
-            double totalAmount = price * seatIdList.size();
-            System.out.println("Total amount: ₹" + totalAmount);
-
-            // ===== STEP 3: Process payment =====
-            System.out.println("Processing payment...");
-            boolean paymentSuccessful = processPayment(totalAmount);
+        double totalAmount;
+        try {
+            // ===== STEP 2: Get total price =====
+            totalAmount = BookingService.getInstance().quote(showId, seatIdList.size());
+            log.debug("payment.quoted", "showId", showId, "seats", seatIdList.size(), "amount", totalAmount);
 
-            if (!paymentSuccessful) {
-                conn.rollback();
-                System.out.println("❌ Payment failed");
-                response.sendRedirect("ShowServlet?movieId=" + movieId + "&error=paymentFailed");
+            // ===== STEP 3: Hold the seats (or renew the user's hold) before charging =====
+            if (!SeatHoldService.getInstance().hold(showId, user.getUserId(), seatIdList)) {
+                log.info("payment.rejected", "userId", user.getUserId(), "showId", showId, "reason", "seatsUnavailable");
+                response.sendRedirect("ShowServlet?movieId=" + movieId + "&error=bookingFailed");
                 return;
             }
+        } catch (SQLException e) {
+            log.error("payment.prepare.failed", e, "userId", user.getUserId(), "showId", showId);
+            response.sendRedirect("ShowServlet?movieId=" + movieId + "&error=database");
+            return;
+        }
 
-            System.out.println("✓ Payment successful");
-
-            // ===== STEP 4: Create booking in database =====
-            System.out.println("Creating booking record in database...");
-
-            String bookingSql = "INSERT INTO bookings (booking_id, user_id, show_id, booking_date, total_amount, payment_status, booking_status) " +
-                    "VALUES (booking_seq.NEXTVAL, ?, ?, SYSDATE, ?, 'Completed', 'Active')";
-
-            stmt = conn.prepareStatement(bookingSql, new String[]{"booking_id"});
-            stmt.setInt(1, user.getUserId());
-            stmt.setInt(2, showId);
-            stmt.setDouble(3, totalAmount);
-            stmt.executeUpdate();
-
-            // Get generated booking ID
-            rs = stmt.getGeneratedKeys();
-            int bookingId = 0;
-            if (rs.next()) {
-                bookingId = rs.getInt(1);
-            }
-            rs.close();
-            stmt.close();
-
-            System.out.println("✓ Booking created with ID: " + bookingId);
-
-            // ===== STEP 5: Book the seats =====
-            System.out.println("Booking seats in database...");
-
-            // Verify seats are available first
-            System.out.println("Verifying seat availability...");
-            SeatDAO seatDAO = new SeatDAO();
-            for (Integer seatId : seatIdList) {
-                Seat seat = seatDAO.getSeatById(seatId);
-                if (seat != null) {
-                    System.out.println("  Seat " + seatId + ": Status = " + seat.getStatus() +
-                            " (Row: " + seat.getSeatRow() + ", Num: " + seat.getSeatNumber() + ")");
-                } else {
-                    System.out.println("  Seat " + seatId + ": NOT FOUND");
+        // ===== STEP 4: Process payment without holding this thread or a connection =====
+        log.debug("payment.charging", "userId", user.getUserId(), "amount", totalAmount);
+
+        AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(ASYNC_TIMEOUT_MS);
+        AtomicBoolean finished = new AtomicBoolean();
+        // An approved charge that is neither booked nor refunded yet
+        AtomicReference<PaymentResult> unsettled = new AtomicReference<>();
+
+        final int bookedShowId = showId;
+        final int bookedMovieId = movieId;
+        final double amount = totalAmount;
+
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                if (finished.compareAndSet(false, true)) {
+                    log.warn("payment.timeout", "userId", user.getUserId(), "showId", bookedShowId);
+                    SeatHoldService.getInstance().release(bookedShowId, user.getUserId(), seatIdList);
+                    redirect(asyncContext, "ShowServlet?movieId=" + bookedMovieId + "&error=paymentFailed");
                 }
             }
 
-            // Pass the existing transaction connection to SeatDAO
-            boolean seatsBooked = seatDAO.bookSeats(seatIdList, bookingId, conn);
-
-            if (!seatsBooked) {
-                conn.rollback();
-                System.out.println("❌ Failed to book seats - Rolling back transaction");
-                response.sendRedirect("ShowServlet?movieId=" + movieId + "&error=bookingFailed");
-                return;
+            @Override
+            public void onComplete(AsyncEvent event) {
+                REQUEST_TIMER.recordSince(requestStart);
             }
 
-            System.out.println("✓ Seats booked successfully");
-
-            // ===== STEP 6: Update available seats count =====
-            System.out.println("Updating available seats count...");
-
-            String updateShowSql = "UPDATE shows SET available_seats = available_seats - ? WHERE show_id = ?";
-            stmt = conn.prepareStatement(updateShowSql);
-            stmt.setInt(1, seatIdList.size());
-            stmt.setInt(2, showId);
-            stmt.executeUpdate();
-            stmt.close();
-
-            System.out.println("✓ Available seats updated");
-
-            // ===== STEP 7: Remove from waitlist if applicable =====
-            System.out.println("Checking if user was in waitlist...");
+            @Override
+            public void onError(AsyncEvent event) {}
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {}
+        });
+
+        PaymentGateway gateway = Payments.getGateway();
+        long chargeStart = System.nanoTime();
+        gateway.charge(user.getUserId(), amount)
+                .whenComplete((result, ex) -> PAYMENT_TIMER.recordSince(chargeStart))
+                .thenAcceptAsync(result -> completeBooking(asyncContext, finished, unsettled, gateway, result,
+                        user, bookedShowId, bookedMovieId, seatIdList, amount), completionExecutor)
+                .exceptionally(ex -> {
+                    log.error("payment.error", ex, "userId", user.getUserId(), "showId", bookedShowId);
+                    refundUnsettled(gateway, unsettled, amount);
+                    SeatHoldService.getInstance().release(bookedShowId, user.getUserId(), seatIdList);
+                    if (finished.compareAndSet(false, true)) {
+                        redirect(asyncContext, "ShowServlet?movieId=" + bookedMovieId + "&error=paymentFailed");
+                    }
+                    return null;
+                });
+    }
 
-            String removeWaitlistSql = "UPDATE waitlist SET status = 'Fulfilled' WHERE user_id = ? AND show_id = ? AND status IN ('Waiting', 'Notified')";
-            stmt = conn.prepareStatement(removeWaitlistSql);
-            stmt.setInt(1, user.getUserId());
-            stmt.setInt(2, showId);
-            int waitlistRows = stmt.executeUpdate();
-            stmt.close();
+    /**
+     * Completion callback: runs the booking transaction once the payment outcome is known
+     * The seat hold ends here either way - converted into a booking or given back
+     */
+    private void completeBooking(AsyncContext asyncContext, AtomicBoolean finished,
+                                 AtomicReference<PaymentResult> unsettled, PaymentGateway gateway,
+                                 PaymentResult payment, User user, int showId, int movieId,
+                                 List<Integer> seatIdList, double totalAmount) {
+        try {
+            bookHeldSeats(asyncContext, finished, unsettled, gateway, payment, user, showId, movieId,
+                    seatIdList, totalAmount);
+        } finally {
+            SeatHoldService.getInstance().release(showId, user.getUserId(), seatIdList);
+        }
+    }
 
-            if (waitlistRows > 0) {
-                System.out.println("✓ User removed from waitlist");
-            } else {
-                System.out.println("ℹ User was not in waitlist");
+    private void bookHeldSeats(AsyncContext asyncContext, AtomicBoolean finished,
+                               AtomicReference<PaymentResult> unsettled, PaymentGateway gateway,
+                               PaymentResult payment, User user, int showId, int movieId,
+                               List<Integer> seatIdList, double totalAmount) {
+        if (!payment.isSuccessful()) {
+            log.info("payment.declined", "userId", user.getUserId(), "result", payment);
+            if (finished.compareAndSet(false, true)) {
+                redirect(asyncContext, "ShowServlet?movieId=" + movieId + "&error=paymentFailed");
             }
+            return;
+        }
 
-            // ===== STEP 8: COMMIT all changes =====
-            System.out.println("Committing all database changes...");
-            conn.commit();
-            System.out.println("✓ All changes saved to database");
-
-            // ===== STEP 9: Close the transaction connection =====
-            if (stmt != null) stmt.close();
-            if (rs != null) rs.close();
-            if (conn != null) {
-                conn.setAutoCommit(true);
-                conn.close();
-            }
+        log.info("payment.approved", "userId", user.getUserId(), "result", payment);
+        unsettled.set(payment);
 
-            // ===== STEP 10: Prepare receipt data using NEW connection =====
-            System.out.println("Preparing receipt data...");
+        // Claim the request before booking, so a timeout can no longer report a failure for a booking that commits
+        if (!finished.compareAndSet(false, true)) {
+            // The client already got a timeout response - do not book behind their back
+            refundUnsettled(gateway, unsettled, totalAmount);
+            return;
+        }
 
-            Map<String, Object> bookingData = prepareReceiptData(bookingId, movieId, showId, seatIdList, totalAmount);
+        int bookingId;
+        try {
+            bookingId = BookingService.getInstance().createBooking(user.getUserId(), showId, seatIdList, totalAmount);
+        } catch (SQLException | RuntimeException e) {
+            log.error("booking.failed", e, "userId", user.getUserId(), "showId", showId);
+            refundUnsettled(gateway, unsettled, totalAmount);
+            redirect(asyncContext, "ShowServlet?movieId=" + movieId + "&error=database");
+            return;
+        }
 
-            if (bookingData != null && !bookingData.isEmpty()) {
-                System.out.println("✓ Receipt data prepared");
-                System.out.println("Receipt Seats: " + bookingData.get("seatLabels").toString());
-                System.out.println("========================================");
-                System.out.println("BOOKING SUCCESSFUL!");
-                System.out.println("========================================");
+        if (bookingId <= 0) {
+            refundUnsettled(gateway, unsettled, totalAmount);
+            redirect(asyncContext, "ShowServlet?movieId=" + movieId + "&error=bookingFailed");
+            return;
+        }
+        // Booked: the charge stands whatever happens to the receipt
+        unsettled.set(null);
 
-                request.setAttribute("bookingData", bookingData);
-                request.getRequestDispatcher("ticket.jsp").forward(request, response);
-            } else {
-                System.out.println("❌ Failed to prepare receipt data");
-                response.sendRedirect("HomeServlet?error=receiptError");
-            }
+        // ===== Prepare receipt data =====
+        Map<String, Object> bookingData;
+        try {
+            bookingData = prepareReceiptData(bookingId, movieId, showId, seatIdList, totalAmount);
+        } catch (RuntimeException e) {
+            log.error("receipt.failed", e, "bookingId", bookingId);
+            bookingData = null;
+        }
 
-        } catch (SQLException e) {
-            try {
-                if (conn != null) conn.rollback();
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
-            System.out.println("❌ DATABASE ERROR: " + e.getMessage());
-            e.printStackTrace();
-            response.sendRedirect("ShowServlet?movieId=" + request.getParameter("movieId") + "&error=database");
-        } catch (NumberFormatException e) {
-            System.out.println("❌ PARSING ERROR: " + e.getMessage());
-            e.printStackTrace();
-            response.sendRedirect("HomeServlet?error=invalid");
-        } finally {
-            try {
-                if (conn != null) {
-                    conn.setAutoCommit(true);
-                    conn.close();
-                }
-                if (stmt != null) stmt.close();
-                if (rs != null) rs.close();
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
+        if (bookingData != null && !bookingData.isEmpty()) {
+            log.info("payment.completed", "bookingId", bookingId, "userId", user.getUserId(),
+                    "seats", bookingData.get("seatLabels"));
+
+            asyncContext.getRequest().setAttribute("bookingData", bookingData);
+            asyncContext.dispatch("/ticket.jsp");
+        } else {
+            log.warn("receipt.missing", "bookingId", bookingId);
+            redirect(asyncContext, "HomeServlet?error=receiptError");
         }
     }
 
     /**
-     * Prepare receipt data using a separate database connection
+     * Give back an approved charge that did not become a booking - at most once per request
      */
-    private Map<String, Object> prepareReceiptData(int bookingId, int movieId, int showId,
-                                                   List<Integer> seatIdList, double totalAmount) {
-        Map<String, Object> bookingData = new HashMap<>();
-        Connection receiptConn = null;
-        PreparedStatement receiptStmt = null;
-        ResultSet receiptRs = null;
+    private void refundUnsettled(PaymentGateway gateway, AtomicReference<PaymentResult> unsettled, double amount) {
+        PaymentResult payment = unsettled.getAndSet(null);
+        if (payment != null) {
+            log.info("payment.refunding", "transactionId", payment.getTransactionId(), "amount", amount);
+            gateway.refund(payment.getTransactionId(), amount);
+        }
+    }
 
+    private void redirect(AsyncContext asyncContext, String location) {
         try {
-            receiptConn = com.moviebooking.util.DBConnection.getConnection();
-
-            // Get movie details
-            MovieDAO movieDAO = new MovieDAO();
-            bookingData.put("movie", movieDAO.getMovieById(movieId));
-
-            // Get show time
-            String showTimeQuery = "SELECT TO_CHAR(show_date, 'DD Mon YYYY') || ' ' || show_time as full_time FROM shows WHERE show_id = ?";
-            receiptStmt = receiptConn.prepareStatement(showTimeQuery);
-            receiptStmt.setInt(1, showId);
-            receiptRs = receiptStmt.executeQuery();
-
-            if (receiptRs.next()) {
-                bookingData.put("showTime", receiptRs.getString("full_time"));
-            }
-            receiptRs.close();
-            receiptStmt.close();
-
-            // Get seat labels
-            List<String> seatLabels = new ArrayList<>();
-            for (Integer seatId : seatIdList) {
-                String seatQuery = "SELECT seat_row || seat_number as seat_label FROM seats WHERE seat_id = ?";
-                receiptStmt = receiptConn.prepareStatement(seatQuery);
-                receiptStmt.setInt(1, seatId);
-                receiptRs = receiptStmt.executeQuery();
-
-                if (receiptRs.next()) {
-                    seatLabels.add(receiptRs.getString("seat_label"));
-                }
-                receiptRs.close();
-                receiptStmt.close();
-            }
-
-            bookingData.put("seatLabels", seatLabels);
-            bookingData.put("totalAmount", totalAmount);
-            bookingData.put("bookingId", bookingId);
-            bookingData.put("bookingDate", new java.text.SimpleDateFormat("dd MMM yyyy HH:mm").format(new java.util.Date()));
-
-            System.out.println("✓ Receipt data successfully prepared with " + seatLabels.size() + " seats");
-            return bookingData;
-
-        } catch (SQLException e) {
-            System.out.println("❌ ERROR preparing receipt data: " + e.getMessage());
+            ((HttpServletResponse) asyncContext.getResponse()).sendRedirect(location);
+        } catch (IOException | IllegalStateException e) {
             e.printStackTrace();
-            return null;
         } finally {
-            try {
-                if (receiptRs != null) receiptRs.close();
-                if (receiptStmt != null) receiptStmt.close();
-                if (receiptConn != null) receiptConn.close();
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
+            asyncContext.complete();
         }
     }
 
     /**
-     * Simulate payment processing
-     * Change success rate for testing
+     * Ticket data for the receipt page, or null if it could not be read
      */
-    private boolean processPayment(double amount) {
+    private Map<String, Object> prepareReceiptData(int bookingId, int movieId, int showId,
+                                                   List<Integer> seatIdList, double totalAmount) {
         try {
-            Thread.sleep(500);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-
-        // 100% success for reliable testing
-        // Change to: if (Math.random() > 0.1) for 90% success
-        if (Math.random() > 0) {
-            System.out.println("✓ Payment processed: ₹" + amount);
-            return true;
-        } else {
-            System.out.println("❌ Payment declined");
-            return false;
+            return BookingService.getInstance().buildTicket(bookingId, movieId, showId, seatIdList, totalAmount);
+        } catch (SQLException e) {
+            log.error("receipt.failed", e, "bookingId", bookingId);
+            return null;
         }
     }
 }
\ No newline at end of file
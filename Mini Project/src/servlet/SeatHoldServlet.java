@@ -0,0 +1,71 @@
+package com.moviebooking.servlet;
+
+import com.moviebooking.model.User;
+import com.moviebooking.service.SeatHoldService;
+import jakarta.servlet.*;
+import jakarta.servlet.http.*;
+import jakarta.servlet.annotation.WebServlet;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Seat hold endpoint called from booking.jsp while the user picks seats
+ * POST action=hold|release, showId, seatIds=1,2,3 - answers with a small JSON body
+ */
+@WebServlet("/SeatHoldServlet")
+public class SeatHoldServlet extends HttpServlet {
+
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        HttpSession session = request.getSession(false);
+        User user = session != null ? (User) session.getAttribute("user") : null;
+
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+
+        if (user == null) {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            response.getWriter().write("{\"held\":false,\"error\":\"login\"}");
+            return;
+        }
+
+        int showId;
+        List<Integer> seatIds = new ArrayList<>();
+        try {
+            showId = Integer.parseInt(request.getParameter("showId"));
+            String seatIdsParam = request.getParameter("seatIds");
+            if (seatIdsParam != null && !seatIdsParam.isEmpty()) {
+                for (String id : seatIdsParam.split(",")) {
+                    seatIds.add(Integer.parseInt(id.trim()));
+                }
+            }
+        } catch (NumberFormatException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getWriter().write("{\"held\":false,\"error\":\"invalid\"}");
+            return;
+        }
+
+        SeatHoldService seatHolds = SeatHoldService.getInstance();
+
+        if ("release".equals(request.getParameter("action"))) {
+            seatHolds.release(showId, user.getUserId(), seatIds);
+            response.getWriter().write("{\"held\":false}");
+            return;
+        }
+
+        try {
+            if (!seatIds.isEmpty() && seatHolds.hold(showId, user.getUserId(), seatIds)) {
+                long remainingMs = seatHolds.getRemainingMs(showId, user.getUserId(), seatIds);
+                response.getWriter().write("{\"held\":true,\"expiresInSeconds\":" + remainingMs / 1000 + "}");
+            } else {
+                response.setStatus(HttpServletResponse.SC_CONFLICT);
+                response.getWriter().write("{\"held\":false,\"error\":\"unavailable\"}");
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            response.getWriter().write("{\"held\":false,\"error\":\"database\"}");
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.moviebooking.servlet;
+
+import com.moviebooking.cache.SeatMapCache;
+import com.moviebooking.cache.ShowSeatMap;
+import com.moviebooking.model.User;
+import com.moviebooking.util.Log;
+import com.moviebooking.util.Metrics;
+import jakarta.servlet.*;
+import jakarta.servlet.http.*;
+import jakarta.servlet.annotation.WebServlet;
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Machine-readable seat map of a show, versioned for conditional GETs
+ * GET showId=1 [&encoding=rle|bitmask] [&layout=true]
+ *
+ * The ETag is the resident map's occupancy version, so a client that sends it back in
+ * If-None-Match gets a bodyless 304 until a seat of the show changes. Occupancy is sent
+ * per row instead of per seat:
+ *   rle     - "runs": alternating run lengths starting with free seats, [5,3,12] = 5 free, 3 booked, 12 free
+ *   bitmask - "mask": hex digits, 4 seats each, first seat in the high bit, 1 = booked
+ * With layout=true every row also carries its seat numbers and seat ids as [first, count]
+ * ranges of consecutive values; the layout never changes, so clients fetch it once.
+ */
+@WebServlet("/SeatMapServlet")
+public class SeatMapServlet extends HttpServlet {
+
+    private static final Log log = Log.getLogger(SeatMapServlet.class);
+
+    private static final Metrics.Counter FULL_RESPONSES =
+            Metrics.counter("seat_map_requests_total", "Seat map API responses", "result", "full");
+    private static final Metrics.Counter NOT_MODIFIED_RESPONSES =
+            Metrics.counter("seat_map_requests_total", "Seat map API responses", "result", "not_modified");
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        HttpSession session = request.getSession(false);
+        User user = session != null ? (User) session.getAttribute("user") : null;
+        if (user == null) {
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+
+        int showId;
+        try {
+            showId = Integer.parseInt(request.getParameter("showId"));
+        } catch (NumberFormatException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        boolean bitmask = "bitmask".equals(request.getParameter("encoding"));
+        boolean layout = "true".equals(request.getParameter("layout"));
+
+        ShowSeatMap map;
+        try {
+            map = SeatMapCache.getInstance().get(showId);
+        } catch (SQLException e) {
+            log.error("seatMap.loadFailed", e, "showId", showId);
+            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            return;
+        }
+        if (map == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        // Read before encoding: if a seat changes meanwhile the body is newer than the tag,
+        // and the next conditional GET simply gets a full response again
+        long version = map.getVersion();
+        String etag = "\"" + showId + "-" + Long.toString(map.getLoadedAt(), 36) + "-" + version
+                + (bitmask ? "-b" : "-r") + (layout ? "l" : "") + "\"";
+
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", "private, no-cache");
+
+        if (matches(request.getHeader("If-None-Match"), etag)) {
+            NOT_MODIFIED_RESPONSES.inc();
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        FULL_RESPONSES.inc();
+
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write(encode(map, version, bitmask, layout));
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String encode(ShowSeatMap map, long version, boolean bitmask, boolean layout) {
+        StringBuilder json = new StringBuilder(64 + map.getRowCount() * (layout ? 64 : 24));
+        json.append("{\"showId\":").append(map.getShowId())
+                .append(",\"version\":").append(version)
+                .append(",\"seats\":").append(map.getSeatCount())
+                .append(",\"available\":").append(map.getAvailableCount())
+                .append(",\"encoding\":\"").append(bitmask ? "bitmask" : "rle").append('"')
+                .append(",\"rows\":[");
+
+        for (int row = 0; row < map.getRowCount(); row++) {
+            int start = map.getRowStart(row);
+            int end = map.getRowEnd(row);
+            if (row > 0) json.append(',');
+            json.append("{\"row\":\"").append(map.getRowLabel(row)).append('"');
+
+            if (layout) {
+                json.append(",\"numbers\":");
+                appendRanges(json, map, start, end, true);
+                json.append(",\"seatIds\":");
+                appendRanges(json, map, start, end, false);
+            }
+
+            if (bitmask) {
+                json.append(",\"mask\":\"");
+                for (int i = start; i < end; i += 4) {
+                    int nibble = 0;
+                    for (int k = 0; k < 4; k++) {
+                        nibble <<= 1;
+                        if (i + k < end && !map.isAvailable(i + k)) {
+                            nibble |= 1;
+                        }
+                    }
+                    json.append(HEX[nibble]);
+                }
+                json.append('"');
+            } else {
+                json.append(",\"runs\":[");
+                boolean free = true;
+                int run = 0;
+                boolean first = true;
+                for (int i = start; i < end; i++) {
+                    if (map.isAvailable(i) != free) {
+                        if (!first) json.append(',');
+                        json.append(run);
+                        first = false;
+                        free = !free;
+                        run = 0;
+                    }
+                    run++;
+                }
+                if (!first) json.append(',');
+                json.append(run).append(']');
+            }
+            json.append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Seat numbers (or seat ids) of a row as [first, count, first, count, ...] runs of consecutive values
+     */
+    private static void appendRanges(StringBuilder json, ShowSeatMap map, int start, int end, boolean numbers) {
+        json.append('[');
+        int i = start;
+        while (i < end) {
+            int first = numbers ? map.getSeatNumber(i) : map.getSeatId(i);
+            int count = 1;
+            while (i + count < end
+                    && (numbers ? map.getSeatNumber(i + count) : map.getSeatId(i + count)) == first + count) {
+                count++;
+            }
+            if (i > start) json.append(',');
+            json.append(first).append(',').append(count);
+            i += count;
+        }
+        json.append(']');
+    }
+}
@@ -0,0 +1,63 @@
+package com.moviebooking.servlet;
+
+import com.moviebooking.model.User;
+import com.moviebooking.service.SeatEventPublisher;
+import com.moviebooking.util.Log;
+import jakarta.servlet.*;
+import jakarta.servlet.http.*;
+import jakarta.servlet.annotation.WebServlet;
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Live seat map of a show as a Server-Sent Events stream, used by booking.jsp
+ * GET showId=1 - a "snapshot" event with all booked seats, then a "seats" event per change
+ *
+ * The request goes async and the container thread is released at once; the stream is
+ * written with non-blocking I/O by SeatEventPublisher. Streams end after STREAM_TIMEOUT_MS
+ * and EventSource reconnects on its own.
+ */
+@WebServlet(urlPatterns = "/SeatStreamServlet", asyncSupported = true)
+public class SeatStreamServlet extends HttpServlet {
+
+    private static final Log log = Log.getLogger(SeatStreamServlet.class);
+
+    private static final long STREAM_TIMEOUT_MS = 30 * 60 * 1000;
+
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        HttpSession session = request.getSession(false);
+        User user = session != null ? (User) session.getAttribute("user") : null;
+        if (user == null) {
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+
+        int showId;
+        try {
+            showId = Integer.parseInt(request.getParameter("showId"));
+        } catch (NumberFormatException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+
+        response.setContentType("text/event-stream");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        // Keep reverse proxies from buffering the stream
+        response.setHeader("X-Accel-Buffering", "no");
+
+        AsyncContext async = request.startAsync();
+        async.setTimeout(STREAM_TIMEOUT_MS);
+        try {
+            if (!SeatEventPublisher.getInstance().subscribe(showId, async)) {
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                async.complete();
+            }
+        } catch (SQLException e) {
+            log.error("seatStream.subscribeFailed", e, "showId", showId);
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            async.complete();
+        }
+    }
+}
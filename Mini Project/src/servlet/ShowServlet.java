@@ -1,12 +1,14 @@
 package com.moviebooking.servlet;
 
+import com.moviebooking.cache.ShowSeatCounters;
 import com.moviebooking.dao.*;
 import com.moviebooking.model.*;
+import com.moviebooking.service.SeatHoldService;
 import jakarta.servlet.*;
 import jakarta.servlet.http.*;
 import jakarta.servlet.annotation.WebServlet;
 import java.io.IOException;
-import java.sql.*;
+import java.sql.SQLException;
 import java.util.List;
 
 @WebServlet("/ShowServlet")
@@ -27,74 +29,48 @@ public class ShowServlet extends HttpServlet {
         MovieDAO movieDAO = new MovieDAO();
         Movie movie = movieDAO.getMovieById(movieId);
 
-        // Get show details from database
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-
-        try {
-            conn = com.moviebooking.util.DBConnection.getConnection();
-
-            // If showId is provided, use it; otherwise get first available show
-            int showId;
-            if (showIdParam != null) {
-                showId = Integer.parseInt(showIdParam);
-            } else {
-                String sql = "SELECT show_id FROM shows WHERE movie_id = ? ORDER BY show_date, show_time";
-                stmt = conn.prepareStatement(sql);
-                stmt.setInt(1, movieId);
-                rs = stmt.executeQuery();
-
-                if (rs.next()) {
-                    showId = rs.getInt("show_id");
-                } else {
-                    response.sendRedirect("HomeServlet?error=noShows");
-                    return;
-                }
-
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
+        // Show details come from the schedule cache
+        ShowDAO showDAO = new ShowDAO();
+        Show show;
+        if (showIdParam != null) {
+            show = showDAO.getShowById(Integer.parseInt(showIdParam));
+        } else {
+            // No showId given - use the first show of the movie
+            List<Show> schedule = showDAO.getShowsByMovie(movieId);
+            if (schedule.isEmpty()) {
+                response.sendRedirect("HomeServlet?error=noShows");
+                return;
             }
+            show = schedule.get(0);
+        }
 
-            // Get show details
-            String sql = "SELECT s.*, TO_CHAR(s.show_date, 'DD Mon YYYY') || ' ' || s.show_time as full_time " +
-                    "FROM shows s WHERE s.show_id = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, showId);
-            rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                String showTime = rs.getString("full_time");
-                double price = rs.getDouble("price");
-                int availableSeats = rs.getInt("available_seats");
-
-                // Get seats
-                SeatDAO seatDAO = new SeatDAO();
-                List<Seat> seats = seatDAO.getSeatsByShow(showId);
-
-                request.setAttribute("movie", movie);
-                request.setAttribute("showId", showId);
-                request.setAttribute("showTime", showTime);
-                request.setAttribute("price", price);
-                request.setAttribute("seats", seats);
-                request.setAttribute("availableSeats", availableSeats);
-
-                request.getRequestDispatcher("booking.jsp").forward(request, response);
-            } else {
-                response.sendRedirect("HomeServlet?error=showNotFound");
-            }
+        if (show == null) {
+            response.sendRedirect("HomeServlet?error=showNotFound");
+            return;
+        }
+        int showId = show.getShowId();
 
+        // Get seats and the live seat count
+        SeatDAO seatDAO = new SeatDAO();
+        List<Seat> seats = seatDAO.getSeatsByShow(showId);
+        int availableSeats;
+        try {
+            availableSeats = ShowSeatCounters.getInstance().getAvailable(showId);
         } catch (SQLException e) {
             e.printStackTrace();
             response.sendRedirect("HomeServlet?error=database");
-        } finally {
-            try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                if (conn != null) conn.close();
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
+            return;
         }
+
+        request.setAttribute("movie", movie);
+        request.setAttribute("showId", showId);
+        request.setAttribute("showTime", show.getFullTime());
+        request.setAttribute("price", show.getPrice());
+        request.setAttribute("seats", seats);
+        request.setAttribute("availableSeats", availableSeats);
+        // Seats other users are paying for right now - shown as taken
+        request.setAttribute("heldSeatIds", SeatHoldService.getInstance().getSeatsHeldByOthers(showId, user.getUserId()));
+
+        request.getRequestDispatcher("booking.jsp").forward(request, response);
     }
 }
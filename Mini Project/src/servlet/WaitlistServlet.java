@@ -23,84 +23,7 @@ public class WaitlistServlet extends HttpServlet {
         }
 
         WaitlistDAO waitlistDAO = new WaitlistDAO();
-        List<Waitlist> userWaitlist = waitlistDAO.getUserWaitlist(user.getUserId());
-
-        // Prepare detailed waitlist data
-        List<Map<String, Object>> waitlistData = new ArrayList<>();
-        MovieDAO movieDAO = new MovieDAO();
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-
-        try {
-            conn = com.moviebooking.util.DBConnection.getConnection();
-
-            for (Waitlist wl : userWaitlist) {
-                Map<String, Object> entry = new HashMap<>();
-                entry.put("waitlist", wl);
-
-                // Get movie details
-                String movieQuery = "SELECT m.* FROM MOVIES m JOIN SHOWS s ON m.MOVIE_ID = s.MOVIE_ID WHERE s.SHOW_ID = ?";
-                stmt = conn.prepareStatement(movieQuery);
-                stmt.setInt(1, wl.getShowId());
-                rs = stmt.executeQuery();
-
-                if (rs.next()) {
-                    Movie movie = new Movie();
-                    movie.setMovieId(rs.getInt("MOVIE_ID"));
-                    movie.setTitle(rs.getString("TITLE"));
-                    movie.setGenre(rs.getString("GENRE"));
-                    movie.setDuration(rs.getInt("DURATION"));
-                    entry.put("movie", movie);
-                }
-                rs.close();
-                stmt.close();
-
-                // Get show time
-                String showQuery = "SELECT TO_CHAR(SHOW_DATE, 'DD Mon YYYY') || ' ' || SHOW_TIME as FULL_TIME FROM SHOWS WHERE SHOW_ID = ?";
-                stmt = conn.prepareStatement(showQuery);
-                stmt.setInt(1, wl.getShowId());
-                rs = stmt.executeQuery();
-
-                if (rs.next()) {
-                    entry.put("showTime", rs.getString("FULL_TIME"));
-                }
-                rs.close();
-                stmt.close();
-
-                // Get position and total count
-                int position = waitlistDAO.getWaitlistPosition(user.getUserId(), wl.getShowId());
-                int count = waitlistDAO.getWaitlistCount(wl.getShowId());
-
-                // Position 0 means notified (seats available!)
-                // Position -1 means not in waitlist
-                // Position 1+ means waiting in queue
-                entry.put("position", position);
-                entry.put("waitlistCount", count);
-
-                // Add display message based on position
-                if (position == 0 && "Notified".equals(wl.getStatus())) {
-                    entry.put("positionMessage", "Seats Available!");
-                } else if (position > 0) {
-                    entry.put("positionMessage", "Position #" + position);
-                } else {
-                    entry.put("positionMessage", "N/A");
-                }
-
-                waitlistData.add(entry);
-            }
-
-        } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
-            try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                if (conn != null) conn.close();
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
-        }
+        List<WaitlistEntryView> waitlistData = waitlistDAO.getUserWaitlistDashboard(user.getUserId());
 
         request.setAttribute("waitlistData", waitlistData);
         request.getRequestDispatcher("waitlist.jsp").forward(request, response);
@@ -0,0 +1,218 @@
+package com.moviebooking.util;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous appender behind Log
+ *
+ * Request threads only put a record into a bounded ring buffer; a single daemon thread
+ * drains it in batches, renders each record as a key=value line and writes the whole batch
+ * to stdout with one flush. Request threads never wait on the stdout lock. When the buffer
+ * is full, DEBUG and INFO records are dropped and counted, while WARN and ERROR records
+ * are written directly so that problems are never lost. After shutdown() every record
+ * is written directly.
+ */
+public class AsyncLogAppender {
+
+    private static final int CAPACITY = 8192;
+    private static final int BATCH_SIZE = 256;
+    private static final long SHUTDOWN_WAIT_MS = 2_000;
+
+    private static final AsyncLogAppender INSTANCE = new AsyncLogAppender(System.out);
+
+    private final ArrayBlockingQueue<Record> buffer = new ArrayBlockingQueue<>(CAPACITY);
+    private final PrintStream out;
+    private final Thread writer;
+
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile boolean stopped;
+
+    private AsyncLogAppender(PrintStream out) {
+        this.out = out;
+        this.writer = new Thread(this::drainLoop, "log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public static AsyncLogAppender getInstance() {
+        return INSTANCE;
+    }
+
+    void append(Log.Level level, String logger, String event, Object[] keyValues, Throwable error) {
+        Record record = new Record(System.currentTimeMillis(), level, Thread.currentThread().getName(),
+                logger, event, keyValues, error);
+        appended.incrementAndGet();
+        if (stopped) {
+            // No writer thread any more (application shutting down)
+            writeDirect(record);
+        } else if (!buffer.offer(record)) {
+            if (level.compareTo(Log.Level.WARN) >= 0) {
+                writeDirect(record);
+            } else {
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    public long getAppendedCount() { return appended.get(); }
+    public long getWrittenCount() { return written.get(); }
+    public long getDroppedCount() { return dropped.get(); }
+    public int getQueuedCount() { return buffer.size(); }
+
+    /**
+     * Write out everything still buffered and stop the writer thread
+     */
+    public void shutdown() {
+        stopped = true;
+        writer.interrupt();
+        try {
+            writer.join(SHUTDOWN_WAIT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Record> rest = new ArrayList<>();
+        buffer.drainTo(rest);
+        write(rest);
+    }
+
+    private void drainLoop() {
+        List<Record> batch = new ArrayList<>(BATCH_SIZE);
+        while (!stopped) {
+            try {
+                Record first = buffer.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, BATCH_SIZE - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                // shutdown() drains what is left
+                break;
+            } catch (RuntimeException e) {
+                // A value whose toString() throws must not kill the writer
+                e.printStackTrace();
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Record> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder(batch.size() * 128);
+        for (Record record : batch) {
+            record.appendTo(sb);
+        }
+        synchronized (out) {
+            out.print(sb);
+            out.flush();
+        }
+        written.addAndGet(batch.size());
+    }
+
+    private void writeDirect(Record record) {
+        List<Record> single = new ArrayList<>(1);
+        single.add(record);
+        write(single);
+    }
+
+    private static final class Record {
+        final long timestamp;
+        final Log.Level level;
+        final String thread;
+        final String logger;
+        final String event;
+        final Object[] keyValues;
+        final Throwable error;
+
+        Record(long timestamp, Log.Level level, String thread, String logger,
+               String event, Object[] keyValues, Throwable error) {
+            this.timestamp = timestamp;
+            this.level = level;
+            this.thread = thread;
+            this.logger = logger;
+            this.event = event;
+            this.keyValues = keyValues;
+            this.error = error;
+        }
+
+        void appendTo(StringBuilder sb) {
+            sb.append("ts=").append(Instant.ofEpochMilli(timestamp))
+              .append(" level=").append(level.name())
+              .append(" thread=");
+            appendValue(sb, thread);
+            sb.append(" logger=").append(logger)
+              .append(" event=");
+            appendValue(sb, event);
+
+            for (int i = 0; i + 1 < keyValues.length; i += 2) {
+                sb.append(' ').append(keyValues[i]).append('=');
+                appendValue(sb, keyValues[i + 1]);
+            }
+            if (keyValues.length % 2 != 0) {
+                sb.append(" extra=");
+                appendValue(sb, keyValues[keyValues.length - 1]);
+            }
+
+            if (error != null) {
+                sb.append(" error=");
+                appendValue(sb, error.getClass().getSimpleName() + ": " + error.getMessage());
+                if (error instanceof SQLException) {
+                    SQLException sqlError = (SQLException) error;
+                    sb.append(" sqlState=");
+                    appendValue(sb, sqlError.getSQLState());
+                    sb.append(" errorCode=").append(sqlError.getErrorCode());
+                }
+                sb.append('\n');
+                StringWriter trace = new StringWriter();
+                error.printStackTrace(new PrintWriter(trace));
+                sb.append(trace);
+            } else {
+                sb.append('\n');
+            }
+        }
+
+        // Bare value when it is a single token, otherwise double-quoted with \" and \\ escaped
+        private static void appendValue(StringBuilder sb, Object value) {
+            String text = String.valueOf(value);
+            boolean quote = text.isEmpty();
+            for (int i = 0; i < text.length() && !quote; i++) {
+                char c = text.charAt(i);
+                quote = c <= ' ' || c == '"' || c == '=' || c == '\\';
+            }
+            if (!quote) {
+                sb.append(text);
+                return;
+            }
+            sb.append('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"' || c == '\\') {
+                    sb.append('\\').append(c);
+                } else if (c == '\n') {
+                    sb.append("\\n");
+                } else if (c == '\r') {
+                    sb.append("\\r");
+                } else {
+                    sb.append(c);
+                }
+            }
+            sb.append('"');
+        }
+    }
+}
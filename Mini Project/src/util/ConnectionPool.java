@@ -0,0 +1,406 @@
+package com.moviebooking.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded JDBC connection pool used behind DBConnection.getConnection()
+ *
+ * Borrowers are admitted through a fair semaphore, so the pool never holds more
+ * than maxSize physical connections and waiting threads are served in arrival order.
+ * Callers keep using conn.close() - the returned connection is a proxy that hands
+ * the physical connection back to the pool instead of closing it.
+ *
+ * Each physical connection also keeps an LRU cache of its prepared statements
+ * (see StatementCache), so fixed DAO queries are parsed once per connection.
+ */
+public class ConnectionPool {
+
+    // Upper bounds (in milliseconds) of the borrow-wait histogram buckets; the last bucket is +Inf
+    private static final double[] WAIT_BUCKETS_MS = {0.1, 0.5, 1, 5, 10, 50, 100, 500, 1000, 5000};
+
+    // Connections used more recently than this are handed out without an isValid() round trip
+    private static final long VALIDATION_BYPASS_MS = 500;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long HOUSEKEEPING_INTERVAL_MS = 30_000;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final int minIdle;
+    private final long borrowTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long maxLifetimeMs;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final ScheduledExecutorService housekeeper;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong borrowed = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLongArray waitHistogram = new AtomicLongArray(WAIT_BUCKETS_MS.length + 1);
+    private final StatementCache.Counters statementCounters = new StatementCache.Counters();
+
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, String user, String password, int maxSize, int minIdle,
+                          long borrowTimeoutMs, long idleTimeoutMs, long maxLifetimeMs, int statementCacheSize) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.minIdle = minIdle;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.maxLifetimeMs = maxLifetimeMs;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::evictIdle,
+                HOUSEKEEPING_INTERVAL_MS, HOUSEKEEPING_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection, waiting at most borrowTimeoutMs for a free slot
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        boolean acquired;
+        waiters.incrementAndGet();
+        try {
+            acquired = permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            waiters.decrementAndGet();
+        }
+
+        if (!acquired) {
+            timeouts.incrementAndGet();
+            throw new SQLException("Timed out after " + borrowTimeoutMs + "ms waiting for a database connection" +
+                    " (active=" + active.get() + ", idle=" + idle.size() + ", waiters=" + waiters.get() + ")");
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isUsable(pooled)) {
+                    break;
+                }
+                destroy(pooled);
+            }
+            if (pooled == null) {
+                pooled = create();
+            }
+
+            active.incrementAndGet();
+            borrowed.incrementAndGet();
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Return a leased connection - called by the proxy's close()
+     */
+    void release(PooledConnection pooled) {
+        try {
+            if (closed || pooled.broken || isExpired(pooled, System.currentTimeMillis())) {
+                destroy(pooled);
+                return;
+            }
+
+            try {
+                if (!pooled.raw.getAutoCommit()) {
+                    // Never hand out a connection with somebody else's open transaction
+                    pooled.raw.rollback();
+                    pooled.raw.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                destroy(pooled);
+                return;
+            }
+
+            pooled.statements.reset();
+            pooled.lastUsed = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } finally {
+            active.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    /**
+     * Close idle connections and make every connection still in use close on return
+     */
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    public Stats getStats() {
+        long[] buckets = new long[waitHistogram.length()];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = waitHistogram.get(i);
+        }
+        return new Stats(active.get(), idle.size(), waiters.get(), maxSize,
+                created.get(), destroyed.get(), borrowed.get(), timeouts.get(),
+                totalWaitNanos.get(), WAIT_BUCKETS_MS.clone(), buckets,
+                statementCounters.hits.get(), statementCounters.misses.get(), statementCounters.evictions.get());
+    }
+
+    private PooledConnection create() throws SQLException {
+        Connection raw = DriverManager.getConnection(url, user, password);
+        created.incrementAndGet();
+        return new PooledConnection(raw);
+    }
+
+    private void destroy(PooledConnection pooled) {
+        destroyed.incrementAndGet();
+        pooled.statements.closeAll();
+        try {
+            pooled.raw.close();
+        } catch (SQLException e) {
+            // The connection is being discarded anyway
+        }
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        long now = System.currentTimeMillis();
+        if (isExpired(pooled, now)) {
+            return false;
+        }
+        if (now - pooled.lastUsed < VALIDATION_BYPASS_MS) {
+            return true;
+        }
+        try {
+            return pooled.raw.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean isExpired(PooledConnection pooled, long now) {
+        return maxLifetimeMs > 0 && now - pooled.createdAt >= maxLifetimeMs;
+    }
+
+    /**
+     * Housekeeping: retire connections past their max lifetime and trim the idle set down to minIdle
+     */
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> it = idle.descendingIterator();
+
+        while (it.hasNext()) {
+            PooledConnection pooled = it.next();
+            boolean idleTooLong = now - pooled.lastUsed >= idleTimeoutMs && idle.size() > minIdle;
+
+            // remove() only succeeds if no borrower has taken the connection in the meantime
+            if ((isExpired(pooled, now) || idleTooLong) && idle.remove(pooled)) {
+                destroy(pooled);
+            }
+        }
+    }
+
+    private void recordWait(long nanos) {
+        totalWaitNanos.addAndGet(nanos);
+        double ms = nanos / 1_000_000.0;
+        int bucket = 0;
+        while (bucket < WAIT_BUCKETS_MS.length && ms > WAIT_BUCKETS_MS[bucket]) {
+            bucket++;
+        }
+        waitHistogram.incrementAndGet(bucket);
+    }
+
+    /**
+     * A physical connection owned by the pool
+     */
+    class PooledConnection {
+        final Connection raw;
+        final long createdAt;
+        volatile long lastUsed;
+        volatile boolean broken;
+        final StatementCache statements;
+
+        PooledConnection(Connection raw) {
+            this.raw = raw;
+            this.statements = new StatementCache(raw, statementCacheSize, statementCounters);
+            this.createdAt = System.currentTimeMillis();
+            this.lastUsed = createdAt;
+        }
+
+        /**
+         * Hand out a fresh proxy, so a stale reference from a previous lease can never
+         * close or use the connection after it has been returned
+         */
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new LeaseHandler(this));
+        }
+    }
+
+    private class LeaseHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final AtomicBoolean returned = new AtomicBoolean();
+
+        LeaseHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            switch (name) {
+                case "close":
+                    if (returned.compareAndSet(false, true)) {
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned.get() || pooled.raw.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.raw + "]";
+                default:
+                    break;
+            }
+
+            if (returned.get()) {
+                throw new SQLException("Connection is closed");
+            }
+
+            try {
+                if (args != null && args.length == 1 && args[0] instanceof String) {
+                    if ("prepareStatement".equals(name)) {
+                        return pooled.statements.prepareStatement((String) args[0]);
+                    }
+                    if ("prepareCall".equals(name)) {
+                        return pooled.statements.prepareCall((String) args[0]);
+                    }
+                }
+                return method.invoke(pooled.raw, args);
+            } catch (InvocationTargetException | SQLException e) {
+                Throwable cause = e instanceof InvocationTargetException ? e.getCause() : e;
+                if (cause instanceof SQLException) {
+                    String state = ((SQLException) cause).getSQLState();
+                    // SQLState class 08 = connection exception, the physical link is gone
+                    if (state != null && state.startsWith("08")) {
+                        pooled.broken = true;
+                    }
+                }
+                throw cause;
+            }
+        }
+    }
+
+    /**
+     * Point-in-time view of the pool counters
+     */
+    public static class Stats {
+        private final int active;
+        private final int idle;
+        private final int waiters;
+        private final int maxSize;
+        private final long created;
+        private final long destroyed;
+        private final long borrowed;
+        private final long timeouts;
+        private final long totalWaitNanos;
+        private final double[] waitBucketsMs;
+        private final long[] waitBucketCounts;
+        private final long statementCacheHits;
+        private final long statementCacheMisses;
+        private final long statementCacheEvictions;
+
+        Stats(int active, int idle, int waiters, int maxSize, long created, long destroyed,
+              long borrowed, long timeouts, long totalWaitNanos, double[] waitBucketsMs, long[] waitBucketCounts,
+              long statementCacheHits, long statementCacheMisses, long statementCacheEvictions) {
+            this.active = active;
+            this.idle = idle;
+            this.waiters = waiters;
+            this.maxSize = maxSize;
+            this.created = created;
+            this.destroyed = destroyed;
+            this.borrowed = borrowed;
+            this.timeouts = timeouts;
+            this.totalWaitNanos = totalWaitNanos;
+            this.waitBucketsMs = waitBucketsMs;
+            this.waitBucketCounts = waitBucketCounts;
+            this.statementCacheHits = statementCacheHits;
+            this.statementCacheMisses = statementCacheMisses;
+            this.statementCacheEvictions = statementCacheEvictions;
+        }
+
+        public int getActive() { return active; }
+        public int getIdle() { return idle; }
+        public int getWaiters() { return waiters; }
+        public int getMaxSize() { return maxSize; }
+        public long getCreated() { return created; }
+        public long getDestroyed() { return destroyed; }
+        public long getBorrowed() { return borrowed; }
+        public long getTimeouts() { return timeouts; }
+        public long getTotalWaitNanos() { return totalWaitNanos; }
+
+        /** Upper bounds of the borrow-wait buckets in milliseconds; counts has one extra +Inf bucket */
+        public double[] getWaitBucketsMs() { return waitBucketsMs; }
+        public long[] getWaitBucketCounts() { return waitBucketCounts; }
+
+        public long getStatementCacheHits() { return statementCacheHits; }
+        public long getStatementCacheMisses() { return statementCacheMisses; }
+        public long getStatementCacheEvictions() { return statementCacheEvictions; }
+
+        @Override
+        public String toString() {
+            return "Pool{active=" + active + ", idle=" + idle + ", waiters=" + waiters +
+                    ", max=" + maxSize + ", created=" + created + ", destroyed=" + destroyed +
+                    ", borrowed=" + borrowed + ", timeouts=" + timeouts +
+                    ", stmtCacheHits=" + statementCacheHits + ", stmtCacheMisses=" + statementCacheMisses + "}";
+        }
+    }
+}
@@ -1,24 +1,49 @@
 package com.moviebooking.util;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class DBConnection {
-    private static final String URL = "jdbc:oracle:thin:@localhost:1521:free";
-    private static final String USER = "system";
-    private static final String PASSWORD = "drag7098";
+    // Overridable with -Ddb.url, -Ddb.user, -Ddb.password, -Ddb.driver (the benchmarks run on H2)
+    private static final String URL = System.getProperty("db.url", "jdbc:oracle:thin:@localhost:1521:free");
+    private static final String USER = System.getProperty("db.user", "system");
+    private static final String PASSWORD = System.getProperty("db.password", "drag7098");
+    private static final String DRIVER = System.getProperty("db.driver", "oracle.jdbc.driver.OracleDriver");
+
+    // Pool settings
+    private static final int MAX_POOL_SIZE = 20;
+    private static final int MIN_IDLE = 2;
+    private static final long BORROW_TIMEOUT_MS = 5_000;
+    private static final long IDLE_TIMEOUT_MS = 10 * 60 * 1000;
+    private static final long MAX_LIFETIME_MS = 30 * 60 * 1000;
+    private static final int STATEMENT_CACHE_SIZE = 64;
+
+    private static final ConnectionPool POOL;
+
+    private static final Metrics.Timer ACQUIRE_TIMER =
+            Metrics.timer("db_connection_acquire_seconds", "Time to borrow a pooled connection");
 
     static {
         try {
-            Class.forName("oracle.jdbc.driver.OracleDriver");
+            Class.forName(DRIVER);
         } catch (ClassNotFoundException e) {
             e.printStackTrace();
         }
+        POOL = new ConnectionPool(URL, USER, PASSWORD, MAX_POOL_SIZE, MIN_IDLE,
+                BORROW_TIMEOUT_MS, IDLE_TIMEOUT_MS, MAX_LIFETIME_MS, STATEMENT_CACHE_SIZE);
     }
 
+    /**
+     * Borrow a pooled connection
+     * Closing it returns it to the pool, so callers keep using conn.close() as before
+     */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        long start = System.nanoTime();
+        try {
+            return POOL.borrow();
+        } finally {
+            ACQUIRE_TIMER.recordSince(start);
+        }
     }
 
     public static void closeConnection(Connection conn) {
@@ -30,4 +55,18 @@ public class DBConnection {
             }
         }
     }
+
+    /**
+     * Live pool counters (active, idle, waiters, borrow-wait histogram, statement cache hits/misses)
+     */
+    public static ConnectionPool.Stats getPoolStats() {
+        return POOL.getStats();
+    }
+
+    /**
+     * Close all pooled connections - called when the application is undeployed
+     */
+    public static void shutdown() {
+        POOL.close();
+    }
 }
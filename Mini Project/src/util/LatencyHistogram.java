@@ -0,0 +1,77 @@
+package com.moviebooking.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with HDR-style log-linear buckets
+ *
+ * Values are recorded in microseconds. Each power of two is split into 32 linear
+ * sub-buckets, so any recorded value is reported within about 3% of its true value,
+ * from 1 µs up to about 38 hours, in a fixed array of 1056 counters. Recording
+ * is one array index computation and one atomic increment.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 31;
+    private static final long MAX_MICROS = ((long) (2 * SUB_BUCKETS) << MAX_EXPONENT) - 1;
+
+    static final int BUCKET_COUNT = (MAX_EXPONENT + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    public void record(long nanos) {
+        counts.incrementAndGet(indexOf(Math.min(Math.max(nanos / 1000, 0), MAX_MICROS)));
+    }
+
+    /**
+     * Add this histogram's counts into an array of BUCKET_COUNT totals
+     */
+    void addTo(long[] totals) {
+        for (int i = 0; i < totals.length; i++) {
+            totals[i] += counts.get(i);
+        }
+    }
+
+    /**
+     * Value (in microseconds) at the given quantile of a count array filled by addTo()
+     * Returns the upper bound of the bucket the quantile falls in, 0 if nothing was recorded
+     */
+    static long valueAtQuantile(long[] totals, double quantile) {
+        long total = 0;
+        for (long count : totals) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < totals.length; i++) {
+            seen += totals[i];
+            if (seen >= rank) {
+                return upperBoundOf(i);
+            }
+        }
+        return upperBoundOf(totals.length - 1);
+    }
+
+    static int indexOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+        int subBucket = (int) (micros >> exponent) - SUB_BUCKETS;
+        return (exponent + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << exponent;
+        return lower + (1L << exponent) - 1;
+    }
+}
@@ -0,0 +1,88 @@
+package com.moviebooking.util;
+
+/**
+ * Leveled, structured logger
+ *
+ * A call names an event and passes key/value pairs:
+ *   log.info("booking.created", "bookingId", bookingId, "seats", seatIds.size());
+ * and comes out as one key=value line:
+ *   ts=2024-05-01T10:15:30.120Z level=INFO logger=BookingService event=booking.created bookingId=42 seats=3
+ *
+ * Nothing is formatted on the calling thread: a disabled level returns after one comparison,
+ * an enabled one hands the raw values to AsyncLogAppender, which renders them on its own thread.
+ * Values are therefore read later, so pass values that are not mutated afterwards.
+ * The threshold comes from -Dlog.level (DEBUG, INFO, WARN, ERROR; default INFO).
+ */
+public final class Log {
+
+    public enum Level { DEBUG, INFO, WARN, ERROR }
+
+    private static volatile Level threshold = parseLevel(System.getProperty("log.level"));
+
+    private final String name;
+
+    private Log(String name) {
+        this.name = name;
+    }
+
+    public static Log getLogger(Class<?> type) {
+        return new Log(type.getSimpleName());
+    }
+
+    public static void setLevel(Level level) {
+        threshold = level;
+    }
+
+    public static Level getLevel() {
+        return threshold;
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold.ordinal();
+    }
+
+    public boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    public void debug(String event, Object... keyValues) {
+        if (isEnabled(Level.DEBUG)) {
+            AsyncLogAppender.getInstance().append(Level.DEBUG, name, event, keyValues, null);
+        }
+    }
+
+    public void info(String event, Object... keyValues) {
+        if (isEnabled(Level.INFO)) {
+            AsyncLogAppender.getInstance().append(Level.INFO, name, event, keyValues, null);
+        }
+    }
+
+    public void warn(String event, Object... keyValues) {
+        if (isEnabled(Level.WARN)) {
+            AsyncLogAppender.getInstance().append(Level.WARN, name, event, keyValues, null);
+        }
+    }
+
+    public void warn(String event, Throwable error, Object... keyValues) {
+        if (isEnabled(Level.WARN)) {
+            AsyncLogAppender.getInstance().append(Level.WARN, name, event, keyValues, error);
+        }
+    }
+
+    public void error(String event, Throwable error, Object... keyValues) {
+        if (isEnabled(Level.ERROR)) {
+            AsyncLogAppender.getInstance().append(Level.ERROR, name, event, keyValues, error);
+        }
+    }
+
+    private static Level parseLevel(String value) {
+        if (value != null) {
+            for (Level level : Level.values()) {
+                if (level.name().equalsIgnoreCase(value.trim())) {
+                    return level;
+                }
+            }
+        }
+        return Level.INFO;
+    }
+}
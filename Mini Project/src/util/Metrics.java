@@ -0,0 +1,247 @@
+package com.moviebooking.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Process-wide metrics registry, exported in Prometheus text format by MetricsServlet
+ *
+ * Counters and timers are created once (usually into a static final field) and then
+ * updated without locks. Gauges and counterOf() metrics read a value from the component
+ * that owns it when the metrics are scraped. Registering the same name and labels again
+ * returns the existing metric, so registration is safe from static initialisers and
+ * servlet init().
+ *
+ * Timers report count and sum since start plus p50/p90/p99/p999 over a sliding window
+ * of the last one to two minutes, so percentiles follow the current load.
+ */
+public final class Metrics {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final long WINDOW_MS = 60_000;
+
+    private static final ConcurrentSkipListMap<String, Family> FAMILIES = new ConcurrentSkipListMap<>();
+
+    private Metrics() {}
+
+    public static Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, "counter").series.computeIfAbsent(labelString(labels), key -> new Counter());
+    }
+
+    public static Timer timer(String name, String help, String... labels) {
+        return (Timer) family(name, help, "summary").series.computeIfAbsent(labelString(labels), key -> new Timer());
+    }
+
+    /**
+     * Register (or replace) a gauge that is read at scrape time
+     */
+    public static void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, "gauge").series.put(labelString(labels), new Gauge(value));
+    }
+
+    /**
+     * Register (or replace) a counter kept by another component, read at scrape time
+     */
+    public static void counterOf(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, "counter").series.put(labelString(labels), new Gauge(value));
+    }
+
+    /**
+     * Write every registered metric in Prometheus text exposition format (version 0.0.4)
+     */
+    public static void writeTo(Writer out) throws IOException {
+        StringBuilder sb = new StringBuilder(8192);
+        for (Map.Entry<String, Family> entry : FAMILIES.entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            sb.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            sb.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, Object> series : family.series.entrySet()) {
+                ((Metric) series.getValue()).appendTo(sb, name, series.getKey());
+            }
+        }
+        out.write(sb.toString());
+    }
+
+    private static Family family(String name, String help, String type) {
+        Family family = FAMILIES.computeIfAbsent(name, key -> new Family(help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type);
+        }
+        return family;
+    }
+
+    // Label pairs rendered once at registration: k1="v1",k2="v2"
+    private static String labelString(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) sb.append(',');
+            sb.append(labels[i]).append("=\"");
+            String value = labels[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                if (c == '\\' || c == '"') {
+                    sb.append('\\').append(c);
+                } else if (c == '\n') {
+                    sb.append("\\n");
+                } else {
+                    sb.append(c);
+                }
+            }
+            sb.append('"');
+        }
+        return sb.toString();
+    }
+
+    private static void appendSample(StringBuilder sb, String name, String labels, String extraLabel, double value) {
+        sb.append(name);
+        if (!labels.isEmpty() || extraLabel != null) {
+            sb.append('{').append(labels);
+            if (extraLabel != null) {
+                if (!labels.isEmpty()) sb.append(',');
+                sb.append(extraLabel);
+            }
+            sb.append('}');
+        }
+        sb.append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            sb.append((long) value);
+        } else {
+            sb.append(value);
+        }
+        sb.append('\n');
+    }
+
+    private interface Metric {
+        void appendTo(StringBuilder sb, String name, String labels);
+    }
+
+    private static final class Family {
+        final String help;
+        final String type;
+        final ConcurrentSkipListMap<String, Object> series = new ConcurrentSkipListMap<>();
+
+        Family(String help, String type) {
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    /**
+     * Monotonic counter
+     */
+    public static final class Counter implements Metric {
+        private final LongAdder value = new LongAdder();
+
+        private Counter() {}
+
+        public void inc() { value.increment(); }
+        public void add(long amount) { value.add(amount); }
+        public long get() { return value.sum(); }
+
+        @Override
+        public void appendTo(StringBuilder sb, String name, String labels) {
+            appendSample(sb, name, labels, null, value.sum());
+        }
+    }
+
+    /**
+     * Latency timer: lifetime count and sum, windowed percentiles
+     */
+    public static final class Timer implements Metric {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicReference<Window> current = new AtomicReference<>(new Window(System.currentTimeMillis(), null));
+
+        private Timer() {}
+
+        public void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            window(System.currentTimeMillis()).histogram.record(nanos);
+        }
+
+        /**
+         * Record the time elapsed since a System.nanoTime() reading
+         */
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        public long getCount() { return count.sum(); }
+
+        /**
+         * Latency in seconds at the given quantile over the last one to two windows
+         */
+        public double getQuantileSeconds(double quantile) {
+            Window window = window(System.currentTimeMillis());
+            long[] totals = new long[LatencyHistogram.BUCKET_COUNT];
+            window.histogram.addTo(totals);
+            if (window.previous != null) {
+                window.previous.addTo(totals);
+            }
+            return LatencyHistogram.valueAtQuantile(totals, quantile) / 1_000_000.0;
+        }
+
+        // Start a new window once the current one is WINDOW_MS old, keeping the last one for reads
+        private Window window(long now) {
+            Window window = current.get();
+            while (now - window.startedAt >= WINDOW_MS) {
+                Window next = new Window(now, now - window.startedAt < 2 * WINDOW_MS ? window.histogram : null);
+                if (current.compareAndSet(window, next)) {
+                    return next;
+                }
+                window = current.get();
+            }
+            return window;
+        }
+
+        @Override
+        public void appendTo(StringBuilder sb, String name, String labels) {
+            for (double quantile : QUANTILES) {
+                appendSample(sb, name, labels, "quantile=\"" + quantile + "\"", getQuantileSeconds(quantile));
+            }
+            appendSample(sb, name + "_sum", labels, null, totalNanos.sum() / 1e9);
+            appendSample(sb, name + "_count", labels, null, count.sum());
+        }
+
+        private static final class Window {
+            final long startedAt;
+            final LatencyHistogram histogram = new LatencyHistogram();
+            final LatencyHistogram previous;
+
+            Window(long startedAt, LatencyHistogram previous) {
+                this.startedAt = startedAt;
+                this.previous = previous;
+            }
+        }
+    }
+
+    private static final class Gauge implements Metric {
+        private final DoubleSupplier value;
+
+        Gauge(DoubleSupplier value) {
+            this.value = value;
+        }
+
+        @Override
+        public void appendTo(StringBuilder sb, String name, String labels) {
+            double current;
+            try {
+                current = value.getAsDouble();
+            } catch (RuntimeException e) {
+                // One broken gauge must not fail the whole scrape
+                current = Double.NaN;
+            }
+            appendSample(sb, name, labels, null, current);
+        }
+    }
+}
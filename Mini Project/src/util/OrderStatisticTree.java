@@ -0,0 +1,221 @@
+package com.moviebooking.util;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sorted set that also answers "what is the rank of x" and "what is the k-th element"
+ *
+ * A treap (binary search tree kept balanced by random heap priorities) whose nodes store
+ * the size of their subtree, so insert, remove, rank and select are all O(log n) expected.
+ * Iteration is in comparator order and may stop early - reading the first k elements
+ * costs O(k + log n). Elements must not change their ordering while in the tree.
+ * Not thread-safe.
+ */
+public final class OrderStatisticTree<E> implements Iterable<E> {
+
+    private final Comparator<? super E> comparator;
+    private Node<E> root;
+
+    public OrderStatisticTree(Comparator<? super E> comparator) {
+        this.comparator = comparator;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * Insert an element, false if an equal one is already present
+     */
+    public boolean add(E element) {
+        int before = size();
+        root = insert(root, new Node<>(element, ThreadLocalRandom.current().nextInt()));
+        return size() > before;
+    }
+
+    /**
+     * Remove an element, false if it was not present
+     */
+    public boolean remove(E element) {
+        int before = size();
+        root = delete(root, element);
+        return size() < before;
+    }
+
+    public boolean contains(E element) {
+        return rank(element) >= 0;
+    }
+
+    /**
+     * Zero-based position of an element in comparator order, or -1 if it is not present
+     */
+    public int rank(E element) {
+        int rank = 0;
+        Node<E> node = root;
+        while (node != null) {
+            int cmp = comparator.compare(element, node.value);
+            if (cmp < 0) {
+                node = node.left;
+            } else if (cmp > 0) {
+                rank += size(node.left) + 1;
+                node = node.right;
+            } else {
+                return rank + size(node.left);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Element at a zero-based position in comparator order
+     */
+    public E get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size());
+        }
+        Node<E> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index > leftSize) {
+                index -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node.value;
+            }
+        }
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private final ArrayDeque<Node<E>> path = new ArrayDeque<>();
+
+            {
+                pushLeft(root);
+            }
+
+            private void pushLeft(Node<E> node) {
+                for (; node != null; node = node.left) {
+                    path.push(node);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !path.isEmpty();
+            }
+
+            @Override
+            public E next() {
+                if (path.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                Node<E> node = path.pop();
+                pushLeft(node.right);
+                return node.value;
+            }
+        };
+    }
+
+    private Node<E> insert(Node<E> node, Node<E> added) {
+        if (node == null) {
+            return added;
+        }
+        int cmp = comparator.compare(added.value, node.value);
+        if (cmp == 0) {
+            return node;
+        }
+        if (cmp < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        node.update();
+        return node;
+    }
+
+    private Node<E> delete(Node<E> node, E element) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = comparator.compare(element, node.value);
+        if (cmp < 0) {
+            node.left = delete(node.left, element);
+        } else if (cmp > 0) {
+            node.right = delete(node.right, element);
+        } else {
+            return merge(node.left, node.right);
+        }
+        node.update();
+        return node;
+    }
+
+    // Every element of left sorts before every element of right
+    private Node<E> merge(Node<E> left, Node<E> right) {
+        if (left == null) return right;
+        if (right == null) return left;
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private Node<E> rotateRight(Node<E> node) {
+        Node<E> pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        node.update();
+        pivot.update();
+        return pivot;
+    }
+
+    private Node<E> rotateLeft(Node<E> node) {
+        Node<E> pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        node.update();
+        pivot.update();
+        return pivot;
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static final class Node<E> {
+        final E value;
+        final int priority;
+        Node<E> left;
+        Node<E> right;
+        int size = 1;
+
+        Node(E value, int priority) {
+            this.value = value;
+            this.priority = priority;
+        }
+
+        void update() {
+            size = 1 + size(left) + size(right);
+        }
+    }
+}
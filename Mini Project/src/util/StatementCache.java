@@ -0,0 +1,213 @@
+package com.moviebooking.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of prepared statements bound to one pooled physical connection
+ *
+ * prepareStatement(sql) / prepareCall(sql) on a pooled connection returns a cached
+ * statement when the same SQL text was prepared before on that connection, so the
+ * database only parses it once per connection. Calling close() on the returned
+ * statement puts it back into the cache instead of closing it.
+ */
+class StatementCache {
+
+    private final Connection raw;
+    private final int maxSize;
+    private final Counters counters;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(Connection raw, int maxSize, Counters counters) {
+        this.raw = raw;
+        this.maxSize = maxSize;
+        this.counters = counters;
+    }
+
+    PreparedStatement prepareStatement(String sql) throws SQLException {
+        return acquire(sql, false);
+    }
+
+    CallableStatement prepareCall(String sql) throws SQLException {
+        return (CallableStatement) acquire(sql, true);
+    }
+
+    private synchronized PreparedStatement acquire(String sql, boolean callable) throws SQLException {
+        String key = (callable ? "C:" : "P:") + sql;
+        Entry entry = entries.get(key);
+
+        if (entry != null && !entry.inUse) {
+            counters.hits.incrementAndGet();
+            return entry.checkout();
+        }
+
+        counters.misses.incrementAndGet();
+        PreparedStatement stmt = callable ? raw.prepareCall(sql) : raw.prepareStatement(sql);
+
+        if (entry != null) {
+            // Same SQL is already open on this connection (e.g. nested loops) - hand out a plain statement
+            return stmt;
+        }
+
+        entry = new Entry(stmt, callable);
+        entries.put(key, entry);
+        evictOverflow();
+        return entry.checkout();
+    }
+
+    private void evictOverflow() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            Entry eldest = it.next();
+            it.remove();
+            counters.evictions.incrementAndGet();
+            eldest.evicted = true;
+            if (!eldest.inUse) {
+                eldest.closeQuietly();
+            }
+        }
+    }
+
+    /**
+     * Called when the connection goes back to the pool: statements the borrower
+     * forgot to close become available again and their old handles stop working
+     */
+    synchronized void reset() {
+        for (Entry entry : entries.values()) {
+            if (entry.inUse) {
+                entry.checkin(entry.generation);
+            }
+        }
+    }
+
+    synchronized void closeAll() {
+        List<Entry> all = new ArrayList<>(entries.values());
+        entries.clear();
+        for (Entry entry : all) {
+            entry.closeQuietly();
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void checkin(Entry entry, long generation) {
+        entry.checkin(generation);
+    }
+
+    /**
+     * Hit/miss/eviction counters shared by every connection's cache in a pool
+     */
+    static class Counters {
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong evictions = new AtomicLong();
+    }
+
+    private class Entry {
+        final PreparedStatement stmt;
+        final boolean callable;
+        boolean inUse;
+        boolean evicted;
+        long generation;
+
+        Entry(PreparedStatement stmt, boolean callable) {
+            this.stmt = stmt;
+            this.callable = callable;
+        }
+
+        PreparedStatement checkout() {
+            inUse = true;
+            generation++;
+            Class<?> type = callable ? CallableStatement.class : PreparedStatement.class;
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    StatementCache.class.getClassLoader(),
+                    new Class<?>[]{type},
+                    new Handler(this, generation));
+        }
+
+        void checkin(long expectedGeneration) {
+            if (!inUse || generation != expectedGeneration) {
+                return;
+            }
+            inUse = false;
+            generation++;
+
+            if (evicted) {
+                closeQuietly();
+                return;
+            }
+            try {
+                stmt.clearParameters();
+                stmt.clearBatch();
+            } catch (SQLException e) {
+                entries.values().remove(this);
+                closeQuietly();
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                stmt.close();
+            } catch (SQLException e) {
+                // Statement is being discarded anyway
+            }
+        }
+    }
+
+    private class Handler implements InvocationHandler {
+        private final Entry entry;
+        private final long generation;
+        private boolean closed;
+
+        Handler(Entry entry, long generation) {
+            this.entry = entry;
+            this.generation = generation;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        checkin(entry, generation);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || entry.generation != generation;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + entry.stmt + "]";
+                default:
+                    break;
+            }
+
+            if (closed || entry.generation != generation) {
+                throw new SQLException("Statement is closed");
+            }
+
+            try {
+                return method.invoke(entry.stmt, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.moviebooking.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel for many timers with a coarse resolution
+ *
+ * LEVELS wheels of 64 slots; a slot of level L spans 64^L ticks. A timer goes into the
+ * lowest level whose range covers its deadline and moves down a level each time the
+ * wheel above it turns over, so adding is O(1) and each timer is touched at most LEVELS
+ * times before it fires - no scan over pending timers, no heap. Deadlines beyond the top
+ * level are parked in its farthest slot and re-placed when it comes round.
+ * Timers fire on the first advance() whose time has reached their tick. Not thread-safe.
+ */
+public final class TimingWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickMs;
+    private final List<List<Timer<T>>> slots;   // level * SLOTS + slot
+    private final List<Timer<T>> overdue = new ArrayList<>();
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(long tickMs, long startMs) {
+        this.tickMs = tickMs;
+        this.currentTick = startMs / tickMs;
+        this.slots = new ArrayList<>(LEVELS * SLOTS);
+        for (int i = 0; i < LEVELS * SLOTS; i++) {
+            slots.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Schedule a value for deadlineMs; deadlines already passed fire on the next advance()
+     */
+    public void add(T value, long deadlineMs) {
+        // Round up so a timer never fires before its deadline
+        place(new Timer<>(value, (deadlineMs + tickMs - 1) / tickMs));
+        size++;
+    }
+
+    /**
+     * Move the wheel forward to nowMs and hand every timer that is due to the consumer
+     */
+    public void advance(long nowMs, Consumer<T> due) {
+        fire(overdue, due);
+
+        long targetTick = nowMs / tickMs;
+        while (currentTick < targetTick) {
+            currentTick++;
+            // Turn the upper wheels first so their timers can land in the level 0 slot of this tick
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    List<Timer<T>> slot = slot(level, currentTick >>> (SLOT_BITS * level));
+                    List<Timer<T>> cascading = new ArrayList<>(slot);
+                    slot.clear();
+                    for (Timer<T> timer : cascading) {
+                        place(timer);
+                    }
+                }
+            }
+            fire(slot(0, currentTick), due);
+            fire(overdue, due);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    private void place(Timer<T> timer) {
+        long delta = timer.tick - currentTick;
+        if (delta <= 0) {
+            overdue.add(timer);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (SLOT_BITS * (level + 1))) {
+                slot(level, timer.tick >>> (SLOT_BITS * level)).add(timer);
+                return;
+            }
+        }
+        // Beyond the top wheel: park in the slot that comes round last
+        int top = LEVELS - 1;
+        slot(top, (currentTick >>> (SLOT_BITS * top)) - 1).add(timer);
+    }
+
+    private List<Timer<T>> slot(int level, long index) {
+        return slots.get(level * SLOTS + (int) (index & SLOT_MASK));
+    }
+
+    private void fire(List<Timer<T>> timers, Consumer<T> due) {
+        if (timers.isEmpty()) {
+            return;
+        }
+        List<Timer<T>> firing = new ArrayList<>(timers);
+        timers.clear();
+        size -= firing.size();
+        for (Timer<T> timer : firing) {
+            due.accept(timer.value);
+        }
+    }
+
+    private static final class Timer<T> {
+        final T value;
+        final long tick;
+
+        Timer(T value, long tick) {
+            this.value = value;
+            this.tick = tick;
+        }
+    }
+}